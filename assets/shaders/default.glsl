@@ -6,8 +6,11 @@ layout (location=1) in vec4 aColor;
 layout (location=2) in vec2 aTexCoords;
 layout (location=3) in float aTexId;
 
-uniform mat4 uProj;
-uniform mat4 uView;
+layout (std140) uniform Camera
+{
+    mat4 uProj;
+    mat4 uView;
+};
 
 out vec4 fColor;
 out vec2 fTexCoords;
@@ -28,15 +31,24 @@ in vec4 fColor;
 in vec2 fTexCoords;
 in float fTexId;
 
+#ifdef TEXTURE_ARRAY
+uniform sampler2DArray uTextureArray;
+#else
 uniform sampler2D uTextures[8];
+#endif
 
 out vec4 color;
 
 void main()
 {
     if (fTexId > 0) {
+#ifdef TEXTURE_ARRAY
+        // Texture IDs are array layers offset by one
+        color = fColor * texture(uTextureArray, vec3(fTexCoords, fTexId - 1.0));
+#else
         int id = int(fTexId);
         color = fColor * texture(uTextures[id], fTexCoords);
+#endif
     } else {
         color = fColor;
     }
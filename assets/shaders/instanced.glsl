@@ -0,0 +1,58 @@
+#type vertex
+#version 330 core
+
+layout (location=0) in vec2 aCorner;
+layout (location=1) in vec2 aPos;
+layout (location=2) in vec2 aScale;
+layout (location=3) in vec4 aColor;
+layout (location=4) in vec4 aUvRect;
+layout (location=5) in float aTexId;
+
+layout (std140) uniform Camera
+{
+    mat4 uProj;
+    mat4 uView;
+};
+
+out vec4 fColor;
+out vec2 fTexCoords;
+out float fTexId;
+
+void main()
+{
+    fColor = aColor;
+    fTexCoords = mix(aUvRect.xy, aUvRect.zw, aCorner);
+    fTexId = aTexId;
+    gl_Position = uProj * uView * vec4(aPos + aCorner * aScale, 0.0, 1.0);
+}
+
+#type fragment
+#version 330 core
+
+in vec4 fColor;
+in vec2 fTexCoords;
+in float fTexId;
+
+#ifdef TEXTURE_ARRAY
+uniform sampler2DArray uTextureArray;
+#else
+uniform sampler2D uTextures[8];
+#endif
+
+out vec4 color;
+
+void main()
+{
+    if (fTexId > 0) {
+#ifdef TEXTURE_ARRAY
+        // Texture IDs are array layers offset by one
+        color = fColor * texture(uTextureArray, vec3(fTexCoords, fTexId - 1.0));
+#else
+        int id = int(fTexId);
+        color = fColor * texture(uTextures[id], fTexCoords);
+#endif
+    } else {
+        color = fColor;
+    }
+
+}
\ No newline at end of file
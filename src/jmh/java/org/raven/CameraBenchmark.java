@@ -0,0 +1,39 @@
+package org.raven;
+
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The camera matrices are read at least once per frame and batch, and the view matrix is rebuilt on every read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CameraBenchmark {
+
+    private Camera camera;
+    private Vector4f area;
+
+    @Setup
+    public void setup() {
+        camera = new Camera(new Vector2f(100.0f, 50.0f));
+        area = new Vector4f();
+    }
+
+    @Benchmark
+    public Matrix4f viewMatrix() {
+        return camera.getViewMatrix();
+    }
+
+    @Benchmark
+    public Vector4f visibleArea() {
+        return camera.getVisibleArea(area);
+    }
+}
@@ -0,0 +1,74 @@
+package org.raven.objects;
+
+import org.joml.Vector4f;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.raven.objects.components.SpriteRenderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up a component on every game object of a scene, as systems iterating over all objects do.
+ * Each object carries a few components ahead of the sprite renderer, and one lookup misses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetComponentBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int objectCount;
+
+    private List<GameObject> gameObjects;
+
+    public static class Health extends Component {
+    }
+
+    public static class Movement extends Component {
+    }
+
+    public static class Collider extends Component {
+    }
+
+    public static class Sound extends Component {
+    }
+
+    @Setup
+    public void setup() {
+        gameObjects = new ArrayList<>(objectCount);
+        for (int i = 0; i < objectCount; i++) {
+            GameObject go = new GameObject("obj" + i);
+            go.addComponent(new Health());
+            go.addComponent(new Movement());
+            go.addComponent(new Collider());
+            go.addComponent(new SpriteRenderer(new Vector4f(1, 1, 1, 1)));
+            gameObjects.add(go);
+        }
+    }
+
+    @Benchmark
+    public void firstComponent(Blackhole blackhole) {
+        for (GameObject go : gameObjects) {
+            blackhole.consume(go.getComponent(Health.class));
+        }
+    }
+
+    @Benchmark
+    public void lastComponent(Blackhole blackhole) {
+        for (GameObject go : gameObjects) {
+            blackhole.consume(go.getComponent(SpriteRenderer.class));
+        }
+    }
+
+    @Benchmark
+    public void missingComponent(Blackhole blackhole) {
+        for (GameObject go : gameObjects) {
+            blackhole.consume(go.getComponent(Sound.class));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.raven.objects.components;
+
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.openjdk.jmh.annotations.*;
+import org.raven.objects.GameObject;
+import org.raven.renderer.QuadRenderBatch;
+import org.raven.renderer.RenderBatch;
+import org.raven.renderer.Transform;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RecordingRenderBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a share of the sprites dirty through their usual mutators and lets the batches find and
+ * rewrite them. Unchanged colors must not mark a sprite dirty, so 0% measures the cost of
+ * detecting that nothing changed. Batches run against the recording backend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirtyDetectionBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    private int spriteCount;
+
+    @Param({"0", "1", "100"})
+    private int dirtyPercent;
+
+    private List<GameObject> gameObjects;
+    private List<SpriteRenderer> spriteRenderers;
+    private List<RenderBatch> batches;
+    private Vector4f color;
+    private int dirtyCount;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Graphics.setBackend(new RecordingRenderBackend());
+
+        Random random = new Random(42);
+        color = new Vector4f(1, 1, 1, 1);
+        gameObjects = new ArrayList<>(spriteCount);
+        spriteRenderers = new ArrayList<>(spriteCount);
+        batches = new ArrayList<>();
+        for (int i = 0; i < spriteCount; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * 10000.0f, random.nextFloat() * 1000.0f);
+            GameObject go = new GameObject("obj" + i, new Transform(position, new Vector2f(32, 32)), 0);
+            SpriteRenderer spriteRenderer = new SpriteRenderer(new Sprite(null));
+            go.addComponent(spriteRenderer);
+            gameObjects.add(go);
+            spriteRenderers.add(spriteRenderer);
+
+            if (i % BATCH_SIZE == 0) {
+                RenderBatch batch = new QuadRenderBatch(BATCH_SIZE, 0, RenderBatch.StorageMode.DIRECT, null);
+                batch.start();
+                batches.add(batch);
+            }
+            batches.get(batches.size() - 1).addSprite(spriteRenderer);
+        }
+        dirtyCount = spriteCount * dirtyPercent / 100;
+        prepareAll();
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (RenderBatch batch : batches) {
+            batch.destroy();
+        }
+    }
+
+    @Benchmark
+    public void frame() {
+        // Every sprite gets its color set, only the moved ones are actually dirty
+        for (SpriteRenderer spriteRenderer : spriteRenderers) {
+            spriteRenderer.setColor(color);
+        }
+        for (int i = 0; i < dirtyCount; i++) {
+            Transform transform = gameObjects.get(next).getTransform();
+            transform.setPosition(transform.getPosition().x() + 1.0f, transform.getPosition().y());
+            next = (next + 1) % spriteCount;
+        }
+        prepareAll();
+    }
+
+    private void prepareAll() {
+        for (RenderBatch batch : batches) {
+            batch.prepare();
+        }
+    }
+}
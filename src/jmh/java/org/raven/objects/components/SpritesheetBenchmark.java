@@ -0,0 +1,48 @@
+package org.raven.objects.components;
+
+import org.openjdk.jmh.annotations.*;
+import org.raven.renderer.Texture;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RecordingRenderBackend;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slices a sheet of 16 pixel sprites, from the whole texture and from an atlas region.
+ * The texture only exists in the recording backend, so its size costs no memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpritesheetBenchmark {
+
+    private static final int SPRITE_SIZE = 16;
+    // Room for 262144 sprites
+    private static final int TEXTURE_SIZE = 8192;
+
+    @Param({"1000", "10000", "100000"})
+    private int spriteCount;
+
+    private Texture texture;
+    private Sprite region;
+
+    @Setup
+    public void setup() {
+        Graphics.setBackend(new RecordingRenderBackend());
+        texture = new Texture(TEXTURE_SIZE, TEXTURE_SIZE);
+        region = new Sprite(texture);
+    }
+
+    @Benchmark
+    public Spritesheet sliceTexture() {
+        return new Spritesheet(texture, SPRITE_SIZE, SPRITE_SIZE, spriteCount, 0);
+    }
+
+    @Benchmark
+    public Spritesheet sliceRegion() {
+        return new Spritesheet(region, SPRITE_SIZE, SPRITE_SIZE, spriteCount, 0);
+    }
+}
@@ -0,0 +1,83 @@
+package org.raven.renderer;
+
+import org.joml.Vector2f;
+import org.openjdk.jmh.annotations.*;
+import org.raven.Camera;
+import org.raven.objects.GameObject;
+import org.raven.objects.components.Sprite;
+import org.raven.objects.components.SpriteRenderer;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RecordingRenderBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full frames of the renderer against the recording backend: vertex generation, culling and
+ * submission of every batch, at full CPU cost but without a window or GPU. A tenth of the
+ * sprites moves every frame, the camera sees about a twentieth of the level.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadlessRenderBenchmark {
+
+    private static final float WORLD_WIDTH = 1280.0f * 20;
+    private static final float WORLD_HEIGHT = 672.0f;
+
+    @Param({"1000", "10000", "100000"})
+    private int spriteCount;
+
+    @Param({"QUADS", "PACKED_QUADS", "INSTANCED"})
+    private Renderer.BatchType batchType;
+
+    @Param({"true", "false"})
+    private boolean culling;
+
+    @Param({"false", "true"})
+    private boolean renderQueue;
+
+    private RecordingRenderBackend backend;
+    private Renderer renderer;
+    private Camera camera;
+    private List<GameObject> gameObjects;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        backend = new RecordingRenderBackend();
+        Graphics.setBackend(backend);
+
+        random = new Random(42);
+        renderer = new Renderer(batchType);
+        renderer.setCullingEnabled(culling);
+        renderer.setUseRenderQueue(renderQueue);
+        camera = new Camera(new Vector2f());
+        gameObjects = new ArrayList<>(spriteCount);
+        for (int i = 0; i < spriteCount; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * WORLD_WIDTH, random.nextFloat() * WORLD_HEIGHT);
+            GameObject go = new GameObject("obj" + i, new Transform(position, new Vector2f(32, 32)), 0);
+            go.addComponent(new SpriteRenderer(new Sprite(null)));
+            renderer.add(go);
+            gameObjects.add(go);
+        }
+        // The first frame uploads everything
+        renderer.render(camera);
+    }
+
+    @Benchmark
+    public long renderFrame() {
+        for (int i = 0; i < spriteCount / 10; i++) {
+            GameObject go = gameObjects.get(random.nextInt(spriteCount));
+            go.getTransform().setPosition(random.nextFloat() * WORLD_WIDTH, random.nextFloat() * WORLD_HEIGHT);
+        }
+        backend.reset();
+        renderer.render(camera);
+        return backend.getBufferBytes();
+    }
+}
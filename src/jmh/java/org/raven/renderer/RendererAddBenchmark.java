@@ -0,0 +1,75 @@
+package org.raven.renderer;
+
+import org.joml.Vector2f;
+import org.openjdk.jmh.annotations.*;
+import org.raven.objects.GameObject;
+import org.raven.objects.components.Sprite;
+import org.raven.objects.components.SpriteRenderer;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RecordingRenderBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds a whole scene to a new renderer, spread over four z-indices and sixteen textures, so
+ * every add has to search for a batch with a free texture slot. Runs against the recording backend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RendererAddBenchmark {
+
+    private static final int TEXTURE_COUNT = 16;
+    private static final int LAYER_COUNT = 4;
+
+    @Param({"1000", "10000", "100000"})
+    private int objectCount;
+
+    @Param({"QUADS", "INSTANCED"})
+    private Renderer.BatchType batchType;
+
+    private List<GameObject> gameObjects;
+    private Renderer renderer;
+
+    @Setup
+    public void setup() {
+        Graphics.setBackend(new RecordingRenderBackend());
+
+        List<Texture> textures = new ArrayList<>(TEXTURE_COUNT);
+        for (int i = 0; i < TEXTURE_COUNT; i++) {
+            textures.add(new Texture(64, 64));
+        }
+
+        Random random = new Random(42);
+        gameObjects = new ArrayList<>(objectCount);
+        for (int i = 0; i < objectCount; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * 10000.0f, random.nextFloat() * 1000.0f);
+            GameObject go = new GameObject("obj" + i, new Transform(position, new Vector2f(32, 32)), random.nextInt(LAYER_COUNT));
+            go.addComponent(new SpriteRenderer(new Sprite(textures.get(random.nextInt(TEXTURE_COUNT)))));
+            gameObjects.add(go);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void removeAll() {
+        // Removing the last sprite of a batch destroys it, freeing its vertex memory
+        for (GameObject go : gameObjects) {
+            renderer.remove(go);
+        }
+    }
+
+    @Benchmark
+    public Renderer addAll() {
+        renderer = new Renderer(batchType, RenderBatch.StorageMode.DIRECT);
+        for (GameObject go : gameObjects) {
+            renderer.add(go);
+        }
+        return renderer;
+    }
+}
@@ -0,0 +1,98 @@
+package org.raven.renderer;
+
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.openjdk.jmh.annotations.*;
+import org.raven.objects.GameObject;
+import org.raven.objects.components.Sprite;
+import org.raven.objects.components.SpriteRenderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares filling the vertices of every sprite with the 36 byte float layout against the
+ * 20 byte packed layout. Batches are never started, so no GL context is needed; upload bandwidth
+ * follows directly from the vertex sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VertexFormatBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    private int spriteCount;
+
+    private List<SpriteRenderer> spriteRenderers;
+    private List<Sprite> sprites;
+    private List<RenderBatch> floatBatches;
+    private List<RenderBatch> packedBatches;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        spriteRenderers = new ArrayList<>(spriteCount);
+        sprites = new ArrayList<>(spriteCount);
+        for (int i = 0; i < spriteCount; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * 10000.0f, random.nextFloat() * 1000.0f);
+            GameObject go = new GameObject("obj" + i, new Transform(position, new Vector2f(32, 32)), 0);
+            Sprite sprite = new Sprite(null);
+            SpriteRenderer spriteRenderer = new SpriteRenderer(sprite);
+            spriteRenderer.setColor(new Vector4f(random.nextFloat(), random.nextFloat(), random.nextFloat(), 1.0f));
+            go.addComponent(spriteRenderer);
+            spriteRenderers.add(spriteRenderer);
+            sprites.add(sprite);
+        }
+
+        floatBatches = new ArrayList<>();
+        packedBatches = new ArrayList<>();
+        for (int i = 0; i < spriteCount; i += BATCH_SIZE) {
+            RenderBatch floatBatch = new QuadRenderBatch(BATCH_SIZE, 0, RenderBatch.StorageMode.DIRECT, null);
+            RenderBatch packedBatch = new PackedQuadRenderBatch(BATCH_SIZE, 0, RenderBatch.StorageMode.DIRECT, null);
+            for (int j = i; j < Math.min(i + BATCH_SIZE, spriteCount); j++) {
+                floatBatch.addSprite(spriteRenderers.get(j));
+                packedBatch.addSprite(spriteRenderers.get(j));
+            }
+            floatBatches.add(floatBatch);
+            packedBatches.add(packedBatch);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        // Never started, so this only frees the vertex memory
+        for (RenderBatch batch : floatBatches) {
+            batch.destroy();
+        }
+        for (RenderBatch batch : packedBatches) {
+            batch.destroy();
+        }
+    }
+
+    @Benchmark
+    public void floatLayout() {
+        fill(floatBatches);
+    }
+
+    @Benchmark
+    public void packedLayout() {
+        fill(packedBatches);
+    }
+
+    private void fill(List<RenderBatch> batches) {
+        // Every sprite changed, as in a scene where everything moves
+        for (int i = 0; i < spriteCount; i++) {
+            spriteRenderers.get(i).setSprite(sprites.get(i));
+        }
+        for (RenderBatch batch : batches) {
+            batch.prepare();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.raven.scenes;
+
+import org.joml.Vector2f;
+import org.joml.Vector2fc;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.raven.objects.GameObject;
+import org.raven.renderer.Transform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares area and point queries on the spatial hash grid against a linear scan over all
+ * game objects, in a level roughly twenty screens wide.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+    private static final float SCREEN_WIDTH = 1280.0f;
+    private static final float SCREEN_HEIGHT = 672.0f;
+    private static final float WORLD_WIDTH = SCREEN_WIDTH * 20;
+    private static final float WORLD_HEIGHT = SCREEN_HEIGHT * 2;
+
+    @Param({"10000", "100000"})
+    private int objectCount;
+
+    private List<GameObject> gameObjects;
+    private SpatialHashGrid grid;
+    private List<GameObject> result;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        random = new Random(42);
+        gameObjects = new ArrayList<>(objectCount);
+        grid = new SpatialHashGrid(128.0f);
+        for (int i = 0; i < objectCount; i++) {
+            Vector2f position = new Vector2f(random.nextFloat() * WORLD_WIDTH, random.nextFloat() * WORLD_HEIGHT);
+            GameObject go = new GameObject("obj" + i, new Transform(position, new Vector2f(32, 32)), 0);
+            gameObjects.add(go);
+            grid.insert(go);
+        }
+        result = new ArrayList<>(objectCount);
+    }
+
+    @Benchmark
+    public void gridScreenQuery(Blackhole blackhole) {
+        float x = random.nextFloat() * (WORLD_WIDTH - SCREEN_WIDTH);
+        result.clear();
+        blackhole.consume(grid.query(x, 0, x + SCREEN_WIDTH, SCREEN_HEIGHT, result));
+    }
+
+    @Benchmark
+    public void linearScreenQuery(Blackhole blackhole) {
+        float x = random.nextFloat() * (WORLD_WIDTH - SCREEN_WIDTH);
+        result.clear();
+        blackhole.consume(linearQuery(x, 0, x + SCREEN_WIDTH, SCREEN_HEIGHT));
+    }
+
+    @Benchmark
+    public void gridPointQuery(Blackhole blackhole) {
+        float x = random.nextFloat() * WORLD_WIDTH;
+        float y = random.nextFloat() * WORLD_HEIGHT;
+        result.clear();
+        blackhole.consume(grid.query(x, y, result));
+    }
+
+    @Benchmark
+    public void linearPointQuery(Blackhole blackhole) {
+        float x = random.nextFloat() * WORLD_WIDTH;
+        float y = random.nextFloat() * WORLD_HEIGHT;
+        result.clear();
+        blackhole.consume(linearQuery(x, y, x, y));
+    }
+
+    private int linearQuery(float minX, float minY, float maxX, float maxY) {
+        int found = 0;
+        for (GameObject go : gameObjects) {
+            Vector2fc position = go.getTransform().getPosition();
+            Vector2fc scale = go.getTransform().getScale();
+            if (position.x() <= maxX && position.x() + scale.x() >= minX
+                    && position.y() <= maxY && position.y() + scale.y() >= minY) {
+                result.add(go);
+                found++;
+            }
+        }
+        return found;
+    }
+}
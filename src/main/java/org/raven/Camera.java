@@ -3,6 +3,7 @@ package org.raven;
 import org.joml.Matrix4f;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
+import org.joml.Vector4f;
 
 public class Camera {
 
@@ -10,6 +11,10 @@ public class Camera {
     private Matrix4f viewMatrix;
     private Vector2f position;
 
+    // Scratch values for computing the visible area without allocating
+    private final Matrix4f inverseViewProjection = new Matrix4f();
+    private final Vector3f corner = new Vector3f();
+
     public Camera(Vector2f position) {
         this.position = position;
         this.projectionMatrix = new Matrix4f();
@@ -35,4 +40,23 @@ public class Camera {
     public Matrix4f getProjectionMatrix() {
         return this.projectionMatrix;
     }
+
+    /**
+     * Computes the world space rectangle visible through the camera by unprojecting the corners
+     * of normalized device space.
+     * @param dest receives the rectangle as (minX, minY, maxX, maxY).
+     */
+    public Vector4f getVisibleArea(Vector4f dest) {
+        projectionMatrix.mul(getViewMatrix(), inverseViewProjection).invert();
+
+        dest.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < 4; i++) {
+            inverseViewProjection.transformProject(i % 2 == 0 ? -1.0f : 1.0f, i < 2 ? -1.0f : 1.0f, 0.0f, corner);
+            dest.x = Math.min(dest.x, corner.x);
+            dest.y = Math.min(dest.y, corner.y);
+            dest.z = Math.max(dest.z, corner.x);
+            dest.w = Math.max(dest.w, corner.y);
+        }
+        return dest;
+    }
 }
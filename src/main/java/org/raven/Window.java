@@ -5,9 +5,18 @@ import org.lwjgl.opengl.GL;
 import org.raven.imgui.ImGuiLayer;
 import org.raven.inputs.KeyListener;
 import org.raven.inputs.MouseListener;
+import org.raven.profiler.Profiler;
+import org.raven.renderer.RenderBatch;
+import org.raven.renderer.Renderer;
 import org.raven.scenes.LevelEditorScene;
 import org.raven.scenes.Scene;
+import org.raven.util.AssetPool;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static org.lwjgl.glfw.Callbacks.glfwFreeCallbacks;
@@ -28,6 +37,26 @@ public class Window {
 
     private static final Logger LOGGER = Logger.getLogger(Window.class.getName());
 
+    // Updates the scene on a separate thread while the previous frame is drawn, enabled with -Draven.pipelined=true
+    private static final boolean PIPELINED = Boolean.getBoolean("raven.pipelined");
+    // Double buffered, the update thread runs at most one frame ahead of what is on screen
+    private static final int PIPELINE_SNAPSHOTS = 2;
+    private static final long SNAPSHOT_TIMEOUT_MS = 100;
+
+    // Draws through the sorted per frame render queue instead of long lived batches, -Draven.renderQueue=true
+    private static final boolean RENDER_QUEUE = Boolean.getBoolean("raven.renderQueue");
+
+    // Streams the vertices of all dynamic batches every frame instead of uploading dirty ranges, -Draven.streaming=true
+    private static final boolean STREAMING = Boolean.getBoolean("raven.streaming");
+
+    // Records the profiler from startup, it can also be started from its ImGui window
+    private static final boolean PROFILE = Boolean.getBoolean("raven.profile");
+
+    // Render statistics of every frame are written to this file when set, e.g. -Draven.renderStats=stats.csv
+    private static final String RENDER_STATS_LOG = System.getProperty("raven.renderStats");
+
+    private volatile boolean pipelineRunning;
+
     private static Window window = null;
 
     private Window() {
@@ -52,6 +81,8 @@ public class Window {
             init();
             loop();
         }
+        Profiler.destroy();
+        sceneManager.getCurrentScene().getRenderer().destroy();
         // Free the memory at the end of loop
         glfwFreeCallbacks(glfwWindow);
         glfwDestroyWindow(glfwWindow);
@@ -106,17 +137,39 @@ public class Window {
         glEnable(GL_BLEND);
         glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
 
+        Profiler.setEnabled(PROFILE);
+
         this.imGuiLayer = new ImGuiLayer(glfwWindow);
         this.imGuiLayer.initImGui();
 
         // Register scenes
         Scene scene = new LevelEditorScene();
+        if (STREAMING && !PIPELINED) {
+            scene.getRenderer().setStorageMode(RenderBatch.StorageMode.STREAMING);
+        }
+        if (PIPELINED) {
+            scene.getRenderer().enablePipelining(PIPELINE_SNAPSHOTS);
+        }
+        if (RENDER_QUEUE) {
+            scene.getRenderer().setUseRenderQueue(true);
+        }
+        if (RENDER_STATS_LOG != null) {
+            try {
+                scene.getRenderer().startStatsLog(Paths.get(RENDER_STATS_LOG));
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Could not create render statistics log " + RENDER_STATS_LOG, e);
+            }
+        }
         sceneManager.addScene(scene);
         sceneManager.setCurrentScene(scene);
 
     }
 
     private void loop() {
+        if (PIPELINED) {
+            pipelinedLoop();
+            return;
+        }
 
         // Setup time variables
         float frameStartTime = (float) glfwGetTime();
@@ -124,20 +177,34 @@ public class Window {
         float dt = -1.0f;
 
         while (!glfwWindowShouldClose(glfwWindow)) {
+            Profiler.newFrame();
+
             // Poll Events
+            Profiler.begin("poll");
             glfwPollEvents();
+            Profiler.end();
+
+            Profiler.begin("upload textures");
+            AssetPool.uploadTextures();
+            Profiler.end();
 
             glClearColor(0.5f, 0.0f, 0.0f, 0.0f);
             glClear(GL_COLOR_BUFFER_BIT);
 
             if (dt >= 0) {
+                Profiler.begin("update");
                 sceneManager.getCurrentScene().update(dt);
+                Profiler.end();
             }
 
+            Profiler.beginGpu("imgui");
             this.imGuiLayer.update(dt, sceneManager.getCurrentScene());
+            Profiler.endGpu();
 
             // Swap Memory Buffers
+            Profiler.begin("swap");
             glfwSwapBuffers(glfwWindow);
+            Profiler.end();
 
             // Calculate Time Delta of Frame
             frameEndTime = (float) glfwGetTime();
@@ -146,6 +213,120 @@ public class Window {
         }
     }
 
+    /**
+     * The main thread keeps the GL context and polls events, as GLFW requires, while the scene is
+     * updated on a second thread that captures frame N + 1 while frame N is drawn. Events and ImGui
+     * read and change game objects, so they run while the update thread waits for the scene lock.
+     */
+    private void pipelinedLoop() {
+        Scene scene = sceneManager.getCurrentScene();
+        Renderer renderer = scene.getRenderer();
+        // Fair, so the update thread cannot take the scene again before the main thread had its turn
+        ReentrantLock sceneLock = new ReentrantLock(true);
+
+        pipelineRunning = true;
+        Thread updateThread = new Thread(() -> {
+            float frameStartTime = (float) glfwGetTime();
+            float frameEndTime;
+            float dt = -1.0f;
+            try {
+                while (pipelineRunning) {
+                    // Waiting for a free snapshot must not hold the scene lock the main thread needs
+                    Profiler.begin("wait for snapshot");
+                    renderer.beginSnapshot();
+                    Profiler.end();
+                    sceneLock.lock();
+                    try {
+                        Profiler.begin("update");
+                        if (dt >= 0) {
+                            scene.update(dt);
+                        }
+                        Profiler.end();
+                    } finally {
+                        sceneLock.unlock();
+                    }
+                    renderer.publishSnapshot();
+
+                    frameEndTime = (float) glfwGetTime();
+                    dt = frameEndTime - frameStartTime;
+                    frameStartTime = frameEndTime;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Raven Update");
+        updateThread.start();
+
+        float frameStartTime = (float) glfwGetTime();
+        float frameEndTime;
+        float dt = -1.0f;
+        try {
+            while (!glfwWindowShouldClose(glfwWindow)) {
+                Profiler.newFrame();
+
+                Profiler.begin("wait for snapshot");
+                boolean captured = renderer.awaitSnapshot(SNAPSHOT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                Profiler.end();
+                if (!captured) {
+                    if (!updateThread.isAlive()) {
+                        LOGGER.log(Level.SEVERE, "Update thread stopped, closing window.");
+                        break;
+                    }
+                    // A slow update must not make the OS think the window stopped responding
+                    sceneLock.lock();
+                    try {
+                        glfwPollEvents();
+                    } finally {
+                        sceneLock.unlock();
+                    }
+                    continue;
+                }
+
+                sceneLock.lock();
+                try {
+                    Profiler.begin("poll");
+                    glfwPollEvents();
+                    Profiler.end();
+                    Profiler.begin("imgui build");
+                    this.imGuiLayer.buildFrame(dt, scene);
+                    Profiler.end();
+                } finally {
+                    sceneLock.unlock();
+                }
+
+                Profiler.begin("upload textures");
+                AssetPool.uploadTextures();
+                Profiler.end();
+
+                glClearColor(0.5f, 0.0f, 0.0f, 0.0f);
+                glClear(GL_COLOR_BUFFER_BIT);
+                renderer.renderSnapshot();
+                Profiler.beginGpu("imgui");
+                this.imGuiLayer.renderFrame();
+                Profiler.endGpu();
+
+                Profiler.begin("swap");
+                glfwSwapBuffers(glfwWindow);
+                Profiler.end();
+
+                frameEndTime = (float) glfwGetTime();
+                dt = frameEndTime - frameStartTime;
+                frameStartTime = frameEndTime;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Wakes the update thread if it is waiting for a snapshot
+        pipelineRunning = false;
+        updateThread.interrupt();
+        try {
+            updateThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public SceneManager getSceneManager() {
         return sceneManager;
     }
@@ -23,6 +23,8 @@ public class ImGuiLayer {
     // LWJGL3 renderer (SHOULD be initialized)
     private final ImGuiImplGl3 imGuiGl3 = new ImGuiImplGl3();
 
+    private final ProfilerWindow profilerWindow = new ProfilerWindow();
+
     public ImGuiLayer(long glfwWindow) {
         this.glfwWindow = glfwWindow;
     }
@@ -172,14 +174,29 @@ public class ImGuiLayer {
     }
 
     public void update(float dt, Scene currentScene) {
+        buildFrame(dt, currentScene);
+        endFrame();
+    }
+
+    /**
+     * Runs the ImGui code of the scene without drawing anything yet. Split from {@link #renderFrame()}
+     * so the scene only has to be left alone while its windows are built.
+     */
+    public void buildFrame(float dt, Scene currentScene) {
         startFrame(dt);
 
         // Any Dear ImGui code SHOULD go between ImGui.newFrame()/ImGui.render() methods
         ImGui.newFrame();
         currentScene.sceneImgui();
+        profilerWindow.imgui();
         ImGui.showDemoWindow();
         ImGui.render();
+    }
 
+    /**
+     * Draws the frame built by the last {@link #buildFrame(float, Scene)}.
+     */
+    public void renderFrame() {
         endFrame();
     }
 
@@ -0,0 +1,153 @@
+package org.raven.imgui;
+
+import imgui.ImDrawList;
+import imgui.ImGui;
+import org.raven.profiler.Profiler;
+import org.raven.profiler.ProfilerFrame;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ImGui view of the {@link Profiler}: frame times of the history and a timeline of one frame,
+ * with a lane per thread and a row per scope depth. Shows the latest frame unless an older one is selected.
+ */
+public class ProfilerWindow {
+
+    private static final Logger LOGGER = Logger.getLogger(ProfilerWindow.class.getName());
+
+    // Bars narrower than this get no label
+    private static final float MIN_LABEL_WIDTH = 40.0f;
+
+    private final float[] frameTimes = new float[Profiler.HISTORY_FRAMES];
+    private final int[] frameAge = {0};
+
+    // Scope rows per thread lane and the screen position of each lane, reused between frames
+    private int[] laneRows = new int[4];
+    private float[] laneTops = new float[4];
+
+    public void imgui() {
+        ImGui.begin("Profiler");
+        if (ImGui.checkbox("Record", Profiler.isEnabled())) {
+            Profiler.setEnabled(!Profiler.isEnabled());
+        }
+        ImGui.sameLine();
+        if (ImGui.button("Export Chrome trace")) {
+            exportTrace();
+        }
+
+        // Oldest frame first, so the plot scrolls to the left
+        int count = 0;
+        float maxTime = 0.0f;
+        for (int age = Profiler.HISTORY_FRAMES - 1; age >= 0; age--) {
+            ProfilerFrame frame = Profiler.getFrame(age);
+            if (frame != null) {
+                frameTimes[count] = frame.getDuration() / 1e6f;
+                maxTime = Math.max(maxTime, frameTimes[count]);
+                count++;
+            }
+        }
+        if (count == 0) {
+            ImGui.text("No frames recorded.");
+            ImGui.end();
+            return;
+        }
+        ImGui.plotHistogram("##frameTimes", frameTimes, count, 0, "Frame time (ms)", 0.0f, maxTime,
+                ImGui.getContentRegionAvailX(), 60.0f);
+        ImGui.sliderInt("Frames ago", frameAge, 0, count - 1);
+
+        ProfilerFrame frame = Profiler.getFrame(frameAge[0]);
+        if (frame != null) {
+            ImGui.text(String.format("Frame %d: %.3f ms", frame.getNumber(), frame.getDuration() / 1e6f));
+            drawTimeline(frame);
+        }
+        ImGui.end();
+    }
+
+    private void drawTimeline(ProfilerFrame frame) {
+        int threads = Profiler.getThreadCount();
+        if (laneRows.length < threads) {
+            laneRows = new int[threads];
+            laneTops = new float[threads];
+        }
+        Arrays.fill(laneRows, 0);
+        for (int i = 0; i < frame.getEventCount(); i++) {
+            int thread = frame.getThread(i);
+            laneRows[thread] = Math.max(laneRows[thread], frame.getDepth(i) + 1);
+        }
+
+        ImDrawList drawList = ImGui.getWindowDrawList();
+        float left = ImGui.getCursorScreenPosX();
+        float top = ImGui.getCursorScreenPosY();
+        float width = Math.max(ImGui.getContentRegionAvailX(), 1.0f);
+        float rowHeight = ImGui.getTextLineHeight() + 4.0f;
+        int textColor = ImGui.getColorU32(1.0f, 1.0f, 1.0f, 1.0f);
+
+        float y = top;
+        for (int t = 0; t < threads; t++) {
+            if (laneRows[t] == 0) {
+                continue;
+            }
+            drawList.addText(left, y, textColor, Profiler.getThreadName(t));
+            y += rowHeight;
+            laneTops[t] = y;
+            y += laneRows[t] * rowHeight;
+        }
+
+        double scale = width / (double) Math.max(frame.getDuration(), 1);
+        String tooltip = null;
+        drawList.pushClipRect(left, top, left + width, y, true);
+        for (int i = 0; i < frame.getEventCount(); i++) {
+            // Scopes of other threads may have started during the previous frame
+            long start = Math.max(frame.getStart(i), frame.getStart()) - frame.getStart();
+            long end = frame.getEnd(i) - frame.getStart();
+            if (end < 0) {
+                continue;
+            }
+
+            float x1 = left + (float) (start * scale);
+            float x2 = Math.max(left + (float) (end * scale), x1 + 1.0f);
+            float y1 = laneTops[frame.getThread(i)] + frame.getDepth(i) * rowHeight;
+            float y2 = y1 + rowHeight - 1.0f;
+            String name = frame.getName(i);
+            drawList.addRectFilled(x1, y1, x2, y2, color(name));
+            if (x2 - x1 >= MIN_LABEL_WIDTH) {
+                drawList.pushClipRect(x1, y1, x2, y2, true);
+                drawList.addText(x1 + 2.0f, y1 + 2.0f, textColor, name);
+                drawList.popClipRect();
+            }
+            if (ImGui.isMouseHoveringRect(x1, y1, x2, y2)) {
+                tooltip = String.format("%s: %.3f ms", name, (frame.getEnd(i) - frame.getStart(i)) / 1e6f);
+            }
+        }
+        drawList.popClipRect();
+
+        // Reserve the space drawn into, so the window scrolls and sizes correctly
+        ImGui.dummy(width, y - top);
+        if (tooltip != null) {
+            ImGui.setTooltip(tooltip);
+        }
+    }
+
+    // Stable muted color per scope name
+    private static int color(String name) {
+        int hash = name.hashCode();
+        float r = 0.3f + (hash & 0xFF) / 255.0f * 0.4f;
+        float g = 0.3f + ((hash >> 8) & 0xFF) / 255.0f * 0.4f;
+        float b = 0.3f + ((hash >> 16) & 0xFF) / 255.0f * 0.4f;
+        return ImGui.getColorU32(r, g, b, 1.0f);
+    }
+
+    private static void exportTrace() {
+        Path path = Paths.get("profile-" + System.currentTimeMillis() + ".json");
+        try {
+            Profiler.exportChromeTrace(path);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not write profiler trace " + path, e);
+        }
+    }
+}
@@ -10,6 +10,11 @@ public abstract class Component {
 
     public  void update(float dt){}
 
+    /**
+     * Called whenever the transform of the game object changed.
+     */
+    public void transformChanged() {}
+
     public GameObject getGameObject() {
         return gameObject;
     }
@@ -1,9 +1,11 @@
 package org.raven.objects;
 
+import org.raven.profiler.Profiler;
 import org.raven.renderer.Transform;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,6 +15,12 @@ public class GameObject {
     private List<Component> components;
     private Transform transform;
     private int zIndex;
+    // Static objects are not expected to change after being added to a scene
+    private boolean isStatic = false;
+
+    // Notified once per batch of transform changes, until the change is acknowledged
+    private Consumer<GameObject> changeListener;
+    private boolean changePending = false;
 
     private Logger logger;
 
@@ -30,6 +38,30 @@ public class GameObject {
         this.components = components;
         this.transform = transform;
         this.zIndex = zIndex;
+        transform.setChangeListener(this::transformChanged);
+    }
+
+    private void transformChanged() {
+        for (Component c : components) {
+            c.transformChanged();
+        }
+        if (changeListener != null && !changePending) {
+            changePending = true;
+            changeListener.accept(this);
+        }
+    }
+
+    /**
+     * Sets the listener told about the first transform change after each {@link #acknowledgeChange()},
+     * so it can collect changed objects without seeing duplicates.
+     */
+    public void setChangeListener(Consumer<GameObject> changeListener) {
+        this.changeListener = changeListener;
+        this.changePending = false;
+    }
+
+    public void acknowledgeChange() {
+        changePending = false;
     }
 
     public <T extends Component> T getComponent(Class<T> componentClass) {
@@ -64,7 +96,9 @@ public class GameObject {
 
     public void update(float dt) {
         for (Component component : components) {
+            Profiler.begin(component.getClass());
             component.update(dt);
+            Profiler.end();
         }
     }
 
@@ -87,4 +121,17 @@ public class GameObject {
     public int getzIndex() {
         return zIndex;
     }
+
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    /**
+     * Marks the object as level geometry that does not move or change. Static objects are drawn
+     * from batches that are only rebuilt on {@link org.raven.scenes.Scene#invalidate(GameObject)}
+     * and are skipped by per frame change checks. Must be set before the object is added to a scene.
+     */
+    public void setStatic(boolean isStatic) {
+        this.isStatic = isStatic;
+    }
 }
@@ -3,10 +3,16 @@ package org.raven.objects.components;
 import org.joml.Vector2f;
 import org.raven.renderer.Texture;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 public class Sprite {
 
     private Texture texture;
     private Vector2f[] texCoords;
+    // Renderers showing the sprite, marked dirty when it changes. Weak, so renderers of removed objects can be collected
+    private final Set<SpriteRenderer> renderers = Collections.newSetFromMap(new WeakHashMap<>());
 
     public Sprite(Texture texture) {
         this.texture = texture;
@@ -30,4 +36,32 @@ public class Sprite {
     public Vector2f[] getTexCoords() {
         return texCoords;
     }
+
+    /**
+     * Changes the texture of every renderer showing the sprite. Batches only learn about textures when
+     * sprites are added, so renderers already added to a renderer should be removed and added again.
+     */
+    public void setTexture(Texture texture) {
+        this.texture = texture;
+        markRenderersDirty();
+    }
+
+    public void setTexCoords(Vector2f[] texCoords) {
+        this.texCoords = texCoords;
+        markRenderersDirty();
+    }
+
+    void addRenderer(SpriteRenderer renderer) {
+        renderers.add(renderer);
+    }
+
+    void removeRenderer(SpriteRenderer renderer) {
+        renderers.remove(renderer);
+    }
+
+    private void markRenderersDirty() {
+        for (SpriteRenderer renderer : renderers) {
+            renderer.markDirty();
+        }
+    }
 }
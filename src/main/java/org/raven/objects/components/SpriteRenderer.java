@@ -5,7 +5,6 @@ import org.joml.Vector2f;
 import org.joml.Vector4f;
 import org.raven.objects.Component;
 import org.raven.renderer.Texture;
-import org.raven.renderer.Transform;
 
 public class SpriteRenderer extends Component {
 
@@ -13,31 +12,28 @@ public class SpriteRenderer extends Component {
     private Sprite sprite;
 
     private boolean dirty = false;
-
-    private Transform lastTransform;
+    // Lets the batch holding the sprite know it has to look for changes
+    private Runnable dirtyListener;
 
     public SpriteRenderer(Vector4f color) {
         this.color = color;
         this.sprite = new Sprite(null);
+        this.sprite.addRenderer(this);
         this.dirty = true;
     }
 
     public SpriteRenderer(Sprite sprite) {
         this.sprite = sprite;
+        this.sprite.addRenderer(this);
         this.color = new Vector4f(1,1,1,1);
         this.dirty = true;
     }
 
     @Override
-    public void start() {
-        this.lastTransform = getGameObject().getTransform().copy();
-    }
-
-    @Override
-    public void update(float dt) {
-        if (!this.lastTransform.equals(this.getGameObject().getTransform())) {
-            this.getGameObject().getTransform().copy(this.lastTransform);
-            dirty = true;
+    public void transformChanged() {
+        // Changes to static objects are only picked up when explicitly invalidated
+        if (!getGameObject().isStatic()) {
+            markDirty();
         }
     }
 
@@ -46,7 +42,7 @@ public class SpriteRenderer extends Component {
         float[] imColors = {color.x, color.y, color.z, color.w};
         if (ImGui.colorPicker4("Color Picker: ", imColors)) {
            this.color.set(imColors[0], imColors[1], imColors[2], imColors[3]);
-           this.dirty = true;
+           markDirty();
         }
     }
 
@@ -64,20 +60,36 @@ public class SpriteRenderer extends Component {
 
     public void setColor(Vector4f color) {
         if (!this.color.equals(color)) {
-            this.dirty = true;
             this.color.set(color);
+            markDirty();
         }
     }
 
     public void setSprite(Sprite sprite) {
+        this.sprite.removeRenderer(this);
         this.sprite = sprite;
-        this.dirty = true;
+        this.sprite.addRenderer(this);
+        markDirty();
     }
 
     public boolean isDirty() {
         return this.dirty;
     }
 
+    public void markDirty() {
+        this.dirty = true;
+        if (dirtyListener != null) {
+            dirtyListener.run();
+        }
+    }
+
+    /**
+     * Sets the single listener called whenever the sprite is marked dirty, replacing any previous one.
+     */
+    public void setDirtyListener(Runnable dirtyListener) {
+        this.dirtyListener = dirtyListener;
+    }
+
     public void clean() {
         this.dirty = false;
     }
@@ -14,8 +14,27 @@ public class Spritesheet {
     public Spritesheet(Texture texture, int spriteWidth, int spriteHeight, int numSprites, int spacing) {
         this.sprites = new ArrayList<>();
         this.texture = texture;
-        int currentX = 0;
-        int currentY = texture.getHeight() - spriteHeight;
+        slice(0, texture.getWidth(), texture.getHeight(), spriteWidth, spriteHeight, numSprites, spacing);
+    }
+
+    /**
+     * Slices a sheet that only covers part of its texture, such as a sheet packed into a texture atlas.
+     */
+    public Spritesheet(Sprite region, int spriteWidth, int spriteHeight, int numSprites, int spacing) {
+        this.sprites = new ArrayList<>();
+        this.texture = region.getTexture();
+
+        // Region bounds in pixels, corner 2 is bottom left and corner 0 top right
+        Vector2f[] regionCoords = region.getTexCoords();
+        int left = Math.round(regionCoords[2].x * texture.getWidth());
+        int right = Math.round(regionCoords[0].x * texture.getWidth());
+        int top = Math.round(regionCoords[0].y * texture.getHeight());
+        slice(left, right, top, spriteWidth, spriteHeight, numSprites, spacing);
+    }
+
+    private void slice(int left, int right, int top, int spriteWidth, int spriteHeight, int numSprites, int spacing) {
+        int currentX = left;
+        int currentY = top - spriteHeight;
 
         for (int i = 0; i < numSprites; i++) {
             float topY = (currentY + spriteHeight) / (float) texture.getHeight();
@@ -34,8 +53,8 @@ public class Spritesheet {
             this.sprites.add(sprite);
 
             currentX += spriteWidth + spacing;
-            if (currentX >= texture.getWidth()) {
-                currentX = 0;
+            if (currentX >= right) {
+                currentX = left;
                 currentY -= spriteHeight + spacing;
             }
         }
@@ -0,0 +1,114 @@
+package org.raven.profiler;
+
+import org.raven.renderer.backend.Graphics;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.GL_FALSE;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.GL_TIME_ELAPSED;
+import static org.lwjgl.opengl.GL33.glGetQueryObjecti64;
+
+/**
+ * GL_TIME_ELAPSED queries around GPU scopes. Results are only read once the GPU reports them
+ * available, usually a few frames later, so timing never waits for the GPU to catch up.
+ * Elapsed time queries cannot nest, so only the outermost GPU scope is timed.
+ */
+class GpuTimers {
+
+    // Queries still in flight after this many frames are dropped along with their frame
+    private static final int MAX_PENDING = 256;
+
+    private final boolean supported;
+    private int[] freeQueries = new int[16];
+    private int freeCount;
+
+    // Issued queries in order, as a ring buffer
+    private final int[] queries = new int[MAX_PENDING];
+    private final String[] names = new String[MAX_PENDING];
+    private final long[] frames = new long[MAX_PENDING];
+    private final long[] starts = new long[MAX_PENDING];
+    private int head;
+    private int pending;
+
+    // Depth of the CPU scope the running query belongs to, -1 when no query runs
+    private int activeDepth = -1;
+
+    GpuTimers() {
+        // The queries themselves are GL specific, other backends report no timer support
+        supported = Graphics.backend().supportsTimerQueries();
+    }
+
+    boolean isSupported() {
+        return supported;
+    }
+
+    void begin(String name, long frame, long cpuStart, int depth) {
+        if (!supported || activeDepth >= 0 || pending == MAX_PENDING) {
+            return;
+        }
+
+        int query = freeCount > 0 ? freeQueries[--freeCount] : glGenQueries();
+        glBeginQuery(GL_TIME_ELAPSED, query);
+        int slot = (head + pending) % MAX_PENDING;
+        queries[slot] = query;
+        names[slot] = name;
+        frames[slot] = frame;
+        starts[slot] = cpuStart;
+        pending++;
+        activeDepth = depth;
+    }
+
+    void end(int depth) {
+        if (activeDepth == depth) {
+            glEndQuery(GL_TIME_ELAPSED);
+            activeDepth = -1;
+        }
+    }
+
+    /**
+     * Adds the results of all finished queries to their frames, placed at the CPU start of their scope.
+     * Never blocks; queries finish in the order they were issued, so checking stops at the first running one.
+     */
+    void resolve(Profiler.History history, int gpuThread) {
+        while (pending > 0) {
+            // The running query is always the newest one
+            if (pending == 1 && activeDepth >= 0) {
+                break;
+            }
+            int query = queries[head];
+            if (glGetQueryObjecti(query, GL_QUERY_RESULT_AVAILABLE) == GL_FALSE) {
+                break;
+            }
+
+            long elapsed = glGetQueryObjecti64(query, GL_QUERY_RESULT);
+            ProfilerFrame frame = history.get(frames[head]);
+            if (frame != null) {
+                frame.add(names[head], starts[head], starts[head] + elapsed, 0, gpuThread);
+            }
+            release(query);
+            names[head] = null;
+            head = (head + 1) % MAX_PENDING;
+            pending--;
+        }
+    }
+
+    private void release(int query) {
+        if (freeCount == freeQueries.length) {
+            freeQueries = Arrays.copyOf(freeQueries, freeCount * 2);
+        }
+        freeQueries[freeCount++] = query;
+    }
+
+    void destroy() {
+        for (int i = 0; i < pending; i++) {
+            glDeleteQueries(queries[(head + i) % MAX_PENDING]);
+        }
+        for (int i = 0; i < freeCount; i++) {
+            glDeleteQueries(freeQueries[i]);
+        }
+        pending = 0;
+        freeCount = 0;
+        activeDepth = -1;
+    }
+}
@@ -0,0 +1,387 @@
+package org.raven.profiler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hierarchical frame profiler. Code is timed with nested {@link #begin(String)}/{@link #end()} scopes on
+ * any thread; GL code can additionally be timed on the GPU with {@link #beginGpu(String)}/{@link #endGpu()}.
+ * The last {@link #HISTORY_FRAMES} frames are kept for the ImGui view and Chrome trace export.
+ *
+ * While disabled every call returns after reading a single flag, so scopes can stay in shipping builds.
+ * Scope names should be constants, as building a name costs even when profiling is off.
+ */
+public final class Profiler {
+
+    private static final Logger LOGGER = Logger.getLogger(Profiler.class.getName());
+
+    public static final int HISTORY_FRAMES = 240;
+
+    // Deeper scopes are still balanced but not recorded
+    private static final int MAX_DEPTH = 64;
+    // Scopes a thread may record between two frames before further ones are dropped
+    private static final int MAX_EVENTS = 1 << 16;
+
+    private static volatile boolean enabled;
+    // Increased whenever profiling is enabled, so scopes left open while it was off are discarded
+    private static volatile int generation;
+
+    private static final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    private static final List<String> threadNames = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(Profiler::register);
+
+    private static final History history = new History(HISTORY_FRAMES);
+    private static long frameNumber;
+    private static ProfilerFrame currentFrame;
+
+    // Created on first use, as they need a GL context
+    private static GpuTimers gpuTimers;
+    private static int gpuThread = -1;
+
+    private Profiler() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording. Recorded frames are kept when stopped, so they can still be inspected.
+     */
+    public static void setEnabled(boolean enabled) {
+        if (enabled && !Profiler.enabled) {
+            generation++;
+        }
+        Profiler.enabled = enabled;
+    }
+
+    /**
+     * Opens a scope on the calling thread, closed by the next {@link #end()} on the same thread.
+     */
+    public static void begin(String name) {
+        if (!enabled) {
+            return;
+        }
+        recorder.get().begin(name, System.nanoTime());
+    }
+
+    /**
+     * Opens a scope named after the class, e.g. of the component being updated.
+     */
+    public static void begin(Class<?> type) {
+        if (!enabled) {
+            return;
+        }
+        recorder.get().begin(type.getSimpleName(), System.nanoTime());
+    }
+
+    public static void end() {
+        if (!enabled) {
+            return;
+        }
+        recorder.get().end(System.nanoTime());
+    }
+
+    /**
+     * Opens a scope that is timed on the GPU as well. Must be called on the thread owning the GL
+     * context, and only the outermost GPU scope gets a GPU time.
+     */
+    public static void beginGpu(String name) {
+        if (!enabled) {
+            return;
+        }
+        Recorder rec = recorder.get();
+        long start = System.nanoTime();
+        rec.begin(name, start);
+        if (gpuTimers == null) {
+            gpuTimers = new GpuTimers();
+            gpuThread = register("GPU").thread;
+        }
+        gpuTimers.begin(name, frameNumber, start, rec.depth);
+    }
+
+    public static void endGpu() {
+        if (!enabled) {
+            return;
+        }
+        Recorder rec = recorder.get();
+        if (gpuTimers != null) {
+            gpuTimers.end(rec.depth);
+        }
+        rec.end(System.nanoTime());
+    }
+
+    /**
+     * Finishes the current frame and starts the next one. Must be called once per frame by the thread
+     * owning the GL context; scopes of other threads are added to the frame during which they ended.
+     */
+    public static void newFrame() {
+        if (!enabled && currentFrame == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (currentFrame != null) {
+            for (Recorder rec : recorders) {
+                rec.drainTo(currentFrame);
+            }
+            currentFrame.finish(now);
+        }
+        if (gpuTimers != null) {
+            gpuTimers.resolve(history, gpuThread);
+        }
+
+        // The frame running when profiling stopped is finished above, but no new one is started
+        if (!enabled) {
+            currentFrame = null;
+            return;
+        }
+        frameNumber++;
+        currentFrame = history.next(frameNumber, now);
+    }
+
+    /**
+     * @param age 0 for the last finished frame, 1 for the one before and so on.
+     * @return the frame, or null if it is older than the history or was never recorded.
+     */
+    public static ProfilerFrame getFrame(int age) {
+        long number = currentFrame != null ? frameNumber - 1 - age : frameNumber - age;
+        return history.get(number);
+    }
+
+    public static int getThreadCount() {
+        return threadNames.size();
+    }
+
+    public static String getThreadName(int thread) {
+        return threadNames.get(thread);
+    }
+
+    /**
+     * Writes all frames of the history in the Chrome trace event format, viewable in chrome://tracing
+     * or Perfetto. GPU scopes are shown on their own track, starting where their CPU scope started.
+     */
+    public static void exportChromeTrace(Path path) throws IOException {
+        StringBuilder event = new StringBuilder(256);
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write("{\"traceEvents\":[");
+            boolean first = true;
+            for (int t = 0; t < threadNames.size(); t++) {
+                event.setLength(0);
+                event.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(t)
+                        .append(",\"args\":{\"name\":");
+                appendString(event, threadNames.get(t));
+                event.append("}}");
+                first = write(writer, event, first);
+            }
+
+            for (int age = HISTORY_FRAMES - 1; age >= 0; age--) {
+                ProfilerFrame frame = getFrame(age);
+                if (frame == null) {
+                    continue;
+                }
+
+                event.setLength(0);
+                event.append("{\"name\":\"Frame ").append(frame.getNumber()).append("\",\"ph\":\"i\",\"s\":\"g\",\"pid\":1,\"tid\":0,\"ts\":");
+                appendMicros(event, frame.getStart() - history.epoch);
+                event.append('}');
+                first = write(writer, event, first);
+
+                for (int i = 0; i < frame.getEventCount(); i++) {
+                    event.setLength(0);
+                    event.append("{\"name\":");
+                    appendString(event, frame.getName(i));
+                    event.append(",\"cat\":\"").append(frame.getThread(i) == gpuThread ? "gpu" : "cpu")
+                            .append("\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(frame.getThread(i))
+                            .append(",\"ts\":");
+                    appendMicros(event, frame.getStart(i) - history.epoch);
+                    event.append(",\"dur\":");
+                    appendMicros(event, frame.getEnd(i) - frame.getStart(i));
+                    event.append('}');
+                    first = write(writer, event, first);
+                }
+            }
+            writer.write("]}");
+        }
+        LOGGER.log(Level.INFO, "Profiler trace written to {0}", path);
+    }
+
+    private static boolean write(BufferedWriter writer, StringBuilder event, boolean first) throws IOException {
+        if (!first) {
+            writer.write(",\n");
+        }
+        writer.append(event);
+        return false;
+    }
+
+    // Trace timestamps are microseconds, nanosecond precision is kept in the fraction
+    private static void appendMicros(StringBuilder out, long nanos) {
+        out.append(nanos / 1000).append('.');
+        long fraction = Math.abs(nanos % 1000);
+        if (fraction < 100) out.append('0');
+        if (fraction < 10) out.append('0');
+        out.append(fraction);
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Deletes the GPU queries. Must be called on the thread owning the GL context.
+     */
+    public static void destroy() {
+        if (gpuTimers != null) {
+            gpuTimers.destroy();
+        }
+    }
+
+    private static Recorder register() {
+        return register(Thread.currentThread().getName());
+    }
+
+    private static synchronized Recorder register(String threadName) {
+        Recorder rec = new Recorder(threadNames.size());
+        threadNames.add(threadName);
+        recorders.add(rec);
+        return rec;
+    }
+
+    /**
+     * Scopes of one thread. Open scopes are only touched by the owning thread, finished ones are
+     * handed to the frame by {@link #newFrame()} under the recorder's lock.
+     */
+    private static class Recorder {
+        private final int thread;
+        private int generation;
+
+        private final String[] openNames = new String[MAX_DEPTH];
+        private final long[] openStarts = new long[MAX_DEPTH];
+        private int depth;
+
+        private String[] names = new String[64];
+        private long[] starts = new long[64];
+        private long[] ends = new long[64];
+        private int[] depths = new int[64];
+        private int count;
+        private int dropped;
+
+        private Recorder(int thread) {
+            this.thread = thread;
+            this.generation = Profiler.generation;
+        }
+
+        private void begin(String name, long time) {
+            checkGeneration();
+            if (depth < MAX_DEPTH) {
+                openNames[depth] = name;
+                openStarts[depth] = time;
+            }
+            depth++;
+        }
+
+        private void end(long time) {
+            // Scopes opened before profiling was enabled are never recorded
+            if (!checkGeneration() || depth == 0) {
+                return;
+            }
+            depth--;
+            if (depth < MAX_DEPTH) {
+                add(openNames[depth], openStarts[depth], time, depth);
+                openNames[depth] = null;
+            }
+        }
+
+        /**
+         * @return false if open scopes were discarded because profiling was restarted.
+         */
+        private boolean checkGeneration() {
+            int current = Profiler.generation;
+            if (generation == current) {
+                return true;
+            }
+            generation = current;
+            depth = 0;
+            return false;
+        }
+
+        private synchronized void add(String name, long start, long end, int depth) {
+            if (count == names.length) {
+                if (count == MAX_EVENTS) {
+                    dropped++;
+                    return;
+                }
+                int capacity = count * 2;
+                names = Arrays.copyOf(names, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                depths = Arrays.copyOf(depths, capacity);
+            }
+            names[count] = name;
+            starts[count] = start;
+            ends[count] = end;
+            depths[count] = depth;
+            count++;
+        }
+
+        private synchronized void drainTo(ProfilerFrame frame) {
+            for (int i = 0; i < count; i++) {
+                frame.add(names[i], starts[i], ends[i], depths[i], thread);
+                names[i] = null;
+            }
+            count = 0;
+            if (dropped > 0) {
+                LOGGER.log(Level.WARNING, "Profiler dropped {0} scopes of thread {1}", new Object[]{dropped, threadNames.get(thread)});
+                dropped = 0;
+            }
+        }
+    }
+
+    /**
+     * Ring buffer of the most recent frames, reusing frame objects.
+     */
+    static class History {
+        // Trace timestamps are relative to this, keeping them small
+        private final long epoch = System.nanoTime();
+        private final ProfilerFrame[] frames;
+
+        private History(int size) {
+            frames = new ProfilerFrame[size];
+            for (int i = 0; i < size; i++) {
+                frames[i] = new ProfilerFrame();
+            }
+        }
+
+        private ProfilerFrame next(long number, long start) {
+            ProfilerFrame frame = frames[(int) (number % frames.length)];
+            frame.begin(number, start);
+            return frame;
+        }
+
+        ProfilerFrame get(long number) {
+            if (number <= 0) {
+                return null;
+            }
+            ProfilerFrame frame = frames[(int) (number % frames.length)];
+            return frame.getNumber() == number ? frame : null;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.raven.profiler;
+
+import java.util.Arrays;
+
+/**
+ * Scopes recorded during one frame, stored as parallel arrays so frames can be reused without
+ * allocating. Events are in the order their scopes ended, not sorted by start time.
+ */
+public class ProfilerFrame {
+
+    private long number;
+    private long start;
+    private long end;
+
+    private int count;
+    private String[] names = new String[256];
+    private long[] starts = new long[256];
+    private long[] ends = new long[256];
+    private int[] depths = new int[256];
+    private int[] threads = new int[256];
+
+    void begin(long number, long start) {
+        this.number = number;
+        this.start = start;
+        this.end = start;
+        this.count = 0;
+    }
+
+    void finish(long end) {
+        this.end = end;
+    }
+
+    void add(String name, long start, long end, int depth, int thread) {
+        if (count == names.length) {
+            int capacity = count * 2;
+            names = Arrays.copyOf(names, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+            threads = Arrays.copyOf(threads, capacity);
+        }
+        names[count] = name;
+        starts[count] = start;
+        ends[count] = end;
+        depths[count] = depth;
+        threads[count] = thread;
+        count++;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the frame started.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getDuration() {
+        return end - start;
+    }
+
+    public int getEventCount() {
+        return count;
+    }
+
+    public String getName(int event) {
+        return names[event];
+    }
+
+    public long getStart(int event) {
+        return starts[event];
+    }
+
+    public long getEnd(int event) {
+        return ends[event];
+    }
+
+    /**
+     * @return the nesting depth of the scope, 0 for scopes not opened inside another scope.
+     */
+    public int getDepth(int event) {
+        return depths[event];
+    }
+
+    /**
+     * @return the thread index of the scope, see {@link Profiler#getThreadName(int)}.
+     */
+    public int getThread(int event) {
+        return threads[event];
+    }
+}
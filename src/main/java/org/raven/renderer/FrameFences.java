@@ -0,0 +1,46 @@
+package org.raven.renderer;
+
+import org.raven.renderer.backend.Graphics;
+
+/**
+ * A fence per frame in flight, so memory written for a frame is only rewritten once the GPU
+ * finished that frame. Frame N waits for frame N - {@value #FRAMES} when it begins.
+ */
+class FrameFences {
+
+    // Frames the CPU may run ahead of the GPU before waiting
+    static final int FRAMES = 3;
+
+    private final long[] fences = new long[FRAMES];
+    private int frame;
+
+    /**
+     * Moves on to the next frame, waiting until the GPU finished the frame that last had its index.
+     */
+    void beginFrame() {
+        frame = (frame + 1) % FRAMES;
+        if (fences[frame] != 0) {
+            Graphics.backend().waitFence(fences[frame]);
+            Graphics.backend().deleteFence(fences[frame]);
+            fences[frame] = 0;
+            GLState.countCalls(2);
+        }
+    }
+
+    /**
+     * Fences the frame. Call after its last draw.
+     */
+    void endFrame() {
+        fences[frame] = Graphics.backend().createFence();
+        GLState.countCalls(1);
+    }
+
+    void destroy() {
+        for (int i = 0; i < FRAMES; i++) {
+            if (fences[i] != 0) {
+                Graphics.backend().deleteFence(fences[i]);
+                fences[i] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.raven.renderer;
+
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend.TextureTarget;
+
+import java.util.Arrays;
+
+/**
+ * Shadow copy of the GL bindings the renderer changes, so redundant binds are skipped.
+ * Code binding objects directly (e.g. ImGui or texture loading) is not tracked, which is why
+ * the cache is invalidated at the start of every frame.
+ */
+public final class GLState {
+
+    private static final int MAX_TEXTURE_UNITS = 16;
+    private static final int UNKNOWN = -1;
+
+    private static int program = UNKNOWN;
+    private static int vertexArray = UNKNOWN;
+    private static int activeUnit = UNKNOWN;
+    private static final int[] textures2D = new int[MAX_TEXTURE_UNITS];
+    private static final int[] textureArrays = new int[MAX_TEXTURE_UNITS];
+
+    // GL calls issued and avoided since the last frame started
+    private static int calls;
+    private static int skippedCalls;
+    private static int programSwitches;
+    private static int textureBinds;
+
+    static {
+        invalidate();
+    }
+
+    private GLState() {
+    }
+
+    /**
+     * Forgets all cached bindings and resets the call counters.
+     */
+    public static void beginFrame() {
+        invalidate();
+        calls = 0;
+        skippedCalls = 0;
+        programSwitches = 0;
+        textureBinds = 0;
+    }
+
+    public static void invalidate() {
+        program = UNKNOWN;
+        vertexArray = UNKNOWN;
+        activeUnit = UNKNOWN;
+        Arrays.fill(textures2D, UNKNOWN);
+        Arrays.fill(textureArrays, UNKNOWN);
+    }
+
+    public static void useProgram(int id) {
+        if (program == id) {
+            skippedCalls++;
+            return;
+        }
+        Graphics.backend().useProgram(id);
+        program = id;
+        calls++;
+        programSwitches++;
+    }
+
+    public static void bindVertexArray(int id) {
+        if (vertexArray == id) {
+            skippedCalls++;
+            return;
+        }
+        Graphics.backend().bindVertexArray(id);
+        vertexArray = id;
+        calls++;
+    }
+
+    /**
+     * Binds the texture to a texture unit, only switching the active unit when the binding changes.
+     */
+    public static void bindTexture(int unit, TextureTarget target, int id) {
+        int[] bound = target == TextureTarget.TEXTURE_2D_ARRAY ? textureArrays : textures2D;
+        if (bound[unit] == id) {
+            skippedCalls++;
+            return;
+        }
+        if (activeUnit != unit) {
+            Graphics.backend().activeTextureUnit(unit);
+            activeUnit = unit;
+            calls++;
+        }
+        Graphics.backend().bindTexture(target, id);
+        bound[unit] = id;
+        calls++;
+        textureBinds++;
+    }
+
+    /**
+     * Counts a texture bind made directly, outside of {@link #bindTexture(int, TextureTarget, int)}.
+     */
+    public static void countTextureBind() {
+        calls++;
+        textureBinds++;
+    }
+
+    /**
+     * Must be called when a texture is deleted, as GL may hand out its name again.
+     */
+    public static void textureDeleted(int id) {
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+            if (textures2D[i] == id) {
+                textures2D[i] = UNKNOWN;
+            }
+            if (textureArrays[i] == id) {
+                textureArrays[i] = UNKNOWN;
+            }
+        }
+    }
+
+    public static void vertexArrayDeleted(int id) {
+        if (vertexArray == id) {
+            vertexArray = UNKNOWN;
+        }
+    }
+
+    /**
+     * Counts GL calls made outside of the tracked bindings, e.g. draws and buffer uploads.
+     */
+    public static void countCalls(int count) {
+        calls += count;
+    }
+
+    public static int getCalls() {
+        return calls;
+    }
+
+    public static int getSkippedCalls() {
+        return skippedCalls;
+    }
+
+    public static int getProgramSwitches() {
+        return programSwitches;
+    }
+
+    public static int getTextureBinds() {
+        return textureBinds;
+    }
+}
@@ -0,0 +1,131 @@
+package org.raven.renderer;
+
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.raven.objects.components.SpriteRenderer;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.AttributeType;
+import org.raven.util.Asset;
+
+/**
+ * Batch that stores a single instance record per sprite and expands it to a quad in the
+ * vertex shader, drawing all sprites with one instanced call on a unit quad.
+ */
+public class InstancedRenderBatch extends RenderBatch {
+    /*
+     | Instance Layout                      | All values are floats                              |
+     | ========================================================================================= |
+     | // Pos       // Scale        // Color            // UV Rect                      // TexID |
+     | x, y,        w, h,           r, g, b, a,         u0, v0, u1, v1,                 id       |
+    */
+    private static final int POS_SIZE = 2;
+    private static final int SCALE_SIZE = 2;
+    private static final int COLOR_SIZE = 4;
+    private static final int UV_RECT_SIZE = 4;
+    private static final int TEX_ID_SIZE = 1;
+
+    private static final int POS_OFFSET = 0;
+    private static final int SCALE_OFFSET = POS_OFFSET + POS_SIZE * Float.BYTES;
+    private static final int COLOR_OFFSET = SCALE_OFFSET + SCALE_SIZE * Float.BYTES;
+    private static final int UV_RECT_OFFSET = COLOR_OFFSET + COLOR_SIZE * Float.BYTES;
+    private static final int TEX_ID_OFFSET = UV_RECT_OFFSET + UV_RECT_SIZE * Float.BYTES;
+
+    private static final int INSTANCE_SIZE = 13;
+    private static final int INSTANCE_SIZE_BYTES = INSTANCE_SIZE * Float.BYTES;
+
+    private UnitQuadBuffer unitQuad;
+    // Whether the batch created the unit quad itself instead of sharing one
+    private boolean ownsUnitQuad;
+
+    public InstancedRenderBatch(int maxBatchSize, int zIndex) {
+        this(maxBatchSize, zIndex, StorageMode.DIRECT);
+    }
+
+    public InstancedRenderBatch(int maxBatchSize, int zIndex, StorageMode storageMode) {
+        this(maxBatchSize, zIndex, storageMode, null);
+    }
+
+    public InstancedRenderBatch(int maxBatchSize, int zIndex, StorageMode storageMode, TextureArray textureArray) {
+        super(maxBatchSize, zIndex, storageMode, textureArray, INSTANCE_SIZE, Asset.SHADER_INSTANCED);
+    }
+
+    /**
+     * Shares the unit quad with other batches instead of creating one per batch.
+     * Must be called before {@link #start()}.
+     */
+    public void setUnitQuad(UnitQuadBuffer unitQuad) {
+        this.unitQuad = unitQuad;
+    }
+
+    @Override
+    protected void setupVertexAttributes(int vboID) {
+        RenderBackend backend = Graphics.backend();
+
+        // Per instance attributes, advanced once per drawn quad
+        backend.vertexAttribute(1, POS_SIZE, AttributeType.FLOAT, false, INSTANCE_SIZE_BYTES, POS_OFFSET, 1);
+        backend.vertexAttribute(2, SCALE_SIZE, AttributeType.FLOAT, false, INSTANCE_SIZE_BYTES, SCALE_OFFSET, 1);
+        backend.vertexAttribute(3, COLOR_SIZE, AttributeType.FLOAT, false, INSTANCE_SIZE_BYTES, COLOR_OFFSET, 1);
+        backend.vertexAttribute(4, UV_RECT_SIZE, AttributeType.FLOAT, false, INSTANCE_SIZE_BYTES, UV_RECT_OFFSET, 1);
+        backend.vertexAttribute(5, TEX_ID_SIZE, AttributeType.FLOAT, false, INSTANCE_SIZE_BYTES, TEX_ID_OFFSET, 1);
+
+        // Per vertex corner of the unit quad
+        if (unitQuad == null) {
+            unitQuad = new UnitQuadBuffer();
+            ownsUnitQuad = true;
+        }
+        unitQuad.bind();
+        backend.vertexAttribute(0, 2, AttributeType.FLOAT, false, 2 * Float.BYTES, 0, 0);
+    }
+
+    @Override
+    protected void draw(int first, int count) {
+        Graphics.backend().drawElementsInstanced(UnitQuadBuffer.INDEX_COUNT, UnitQuadBuffer.INDEX_TYPE, 0, count, getBaseSprite() + first);
+    }
+
+    @Override
+    protected void deleteBuffers() {
+        if (ownsUnitQuad) {
+            unitQuad.destroy();
+            unitQuad = null;
+            ownsUnitQuad = false;
+        }
+    }
+
+    @Override
+    protected boolean canDrawRanges() {
+        // Starting at an instance other than the first requires base instance support (GL 4.2)
+        return Graphics.backend().supportsBaseInstance();
+    }
+
+    @Override
+    protected void loadVertexProperties(int i) {
+        SpriteRenderer sprite = this.sprites[i];
+        int offset = i * INSTANCE_SIZE;
+
+        Transform transform = sprite.getGameObject().getTransform();
+        Vector4f color = sprite.getColor();
+        Vector2f[] texCoords = sprite.getTexCoords();
+
+        // Load position and scale
+        vertices.put(offset, transform.getPosition().x());
+        vertices.put(offset + 1, transform.getPosition().y());
+        vertices.put(offset + 2, transform.getScale().x());
+        vertices.put(offset + 3, transform.getScale().y());
+
+        // Load color
+        vertices.put(offset + 4, color.x);
+        vertices.put(offset + 5, color.y);
+        vertices.put(offset + 6, color.z);
+        vertices.put(offset + 7, color.w);
+
+        // Load UV rect, interpolated by the shader from the corner at (0, 0) to the corner at (1, 1)
+        vertices.put(offset + 8, texCoords[2].x);
+        vertices.put(offset + 9, texCoords[2].y);
+        vertices.put(offset + 10, texCoords[0].x);
+        vertices.put(offset + 11, texCoords[0].y);
+
+        // Load Texture ID
+        vertices.put(offset + 12, getTexID(sprite));
+    }
+}
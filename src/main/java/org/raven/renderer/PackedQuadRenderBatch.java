@@ -0,0 +1,100 @@
+package org.raven.renderer;
+
+import org.joml.Vector2f;
+import org.joml.Vector2fc;
+import org.joml.Vector4f;
+import org.raven.objects.components.SpriteRenderer;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.AttributeType;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Quad batch with a 20 byte vertex instead of 36 bytes, which cuts vertex memory and upload
+ * bandwidth by almost half. Attributes are normalized by GL, so the default shader is used as is.
+ */
+public class PackedQuadRenderBatch extends QuadRenderBatch {
+    /*
+     | Vertex Layout                                                                  |
+     | ============================================================================== |
+     | // Pos           // Color                // Tex Coords           // TexID      |
+     | x, y (floats)    r, g, b, a (ubytes)     u, v (ushorts)          id (ushort)   |
+    */
+    private static final int POS_OFFSET = 0;
+    private static final int COLOR_OFFSET = POS_OFFSET + 2 * Float.BYTES;
+    private static final int TEX_COORDS_OFFSET = COLOR_OFFSET + 4;
+    private static final int TEX_ID_OFFSET = TEX_COORDS_OFFSET + 2 * Short.BYTES;
+
+    // Texture ID followed by two bytes of padding keeping vertices 4 byte aligned
+    private static final int VERTEX_SIZE_BYTES = TEX_ID_OFFSET + 2 * Short.BYTES;
+    private static final int SPRITE_SIZE = 4 * VERTEX_SIZE_BYTES / Float.BYTES;
+
+    public PackedQuadRenderBatch(int maxBatchSize, int zIndex, StorageMode storageMode, TextureArray textureArray) {
+        super(maxBatchSize, zIndex, storageMode, textureArray, SPRITE_SIZE);
+    }
+
+    @Override
+    protected void enableAttributes() {
+        RenderBackend backend = Graphics.backend();
+        backend.vertexAttribute(0, 2, AttributeType.FLOAT, false, VERTEX_SIZE_BYTES, POS_OFFSET, 0);
+        backend.vertexAttribute(1, 4, AttributeType.UNSIGNED_BYTE, true, VERTEX_SIZE_BYTES, COLOR_OFFSET, 0);
+        backend.vertexAttribute(2, 2, AttributeType.UNSIGNED_SHORT, true, VERTEX_SIZE_BYTES, TEX_COORDS_OFFSET, 0);
+
+        // Not normalized, the shader receives the ID as float just like with the float layout
+        backend.vertexAttribute(3, 1, AttributeType.UNSIGNED_SHORT, false, VERTEX_SIZE_BYTES, TEX_ID_OFFSET, 0);
+    }
+
+    @Override
+    protected void loadVertexProperties(int i) {
+        SpriteRenderer sprite = this.sprites[i];
+        Vector2fc position = sprite.getGameObject().getTransform().getPosition();
+        Vector2fc scale = sprite.getGameObject().getTransform().getScale();
+        Vector4f color = sprite.getColor();
+        Vector2f[] texCoords = sprite.getTexCoords();
+        short texID = (short) getTexID(sprite);
+
+        byte r = toUnsignedByte(color.x);
+        byte g = toUnsignedByte(color.y);
+        byte b = toUnsignedByte(color.z);
+        byte a = toUnsignedByte(color.w);
+
+        // Written through the address as the layout mixes types, vertices is only a float view
+        long address = memAddress(vertices) + (long) i * SPRITE_SIZE * Float.BYTES;
+        float xAdd = 1.0f;
+        float yAdd = 1.0f;
+        for (int j = 0; j < 4; j++) {
+            if (j == 1) yAdd = 0.0f;
+            if (j == 2) xAdd = 0.0f;
+            if (j == 3) yAdd = 1.0f;
+
+            memPutFloat(address + POS_OFFSET, position.x() + (xAdd * scale.x()));
+            memPutFloat(address + POS_OFFSET + Float.BYTES, position.y() + (yAdd * scale.y()));
+
+            memPutByte(address + COLOR_OFFSET, r);
+            memPutByte(address + COLOR_OFFSET + 1, g);
+            memPutByte(address + COLOR_OFFSET + 2, b);
+            memPutByte(address + COLOR_OFFSET + 3, a);
+
+            memPutShort(address + TEX_COORDS_OFFSET, toUnsignedShort(texCoords[j].x));
+            memPutShort(address + TEX_COORDS_OFFSET + Short.BYTES, toUnsignedShort(texCoords[j].y));
+
+            memPutShort(address + TEX_ID_OFFSET, texID);
+
+            address += VERTEX_SIZE_BYTES;
+        }
+    }
+
+    private static byte toUnsignedByte(float value) {
+        return (byte) (int) (clamp(value) * 255.0f + 0.5f);
+    }
+
+    private static short toUnsignedShort(float value) {
+        return (short) (int) (clamp(value) * 65535.0f + 0.5f);
+    }
+
+    // Normalized attributes cannot leave [0, 1], so repeating texture coordinates need the float layout
+    private static float clamp(float value) {
+        return Math.max(0.0f, Math.min(1.0f, value));
+    }
+}
@@ -0,0 +1,97 @@
+package org.raven.renderer;
+
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend.BufferTarget;
+import org.raven.renderer.backend.RenderBackend.BufferUsage;
+import org.raven.renderer.backend.RenderBackend.IndexType;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Indices of quads made of four vertices, two triangles each. They are the same for every quad batch,
+ * so batches share one buffer bound into each of their vertex arrays instead of uploading their own.
+ * Uses 16 bit indices whenever all vertices can be addressed with them.
+ */
+public class QuadIndexBuffer {
+
+    public static final int INDICES_PER_QUAD = 6;
+
+    private static final int VERTICES_PER_QUAD = 4;
+    private static final int MAX_SHORT_VERTICES = 1 << 16;
+
+    private final int maxQuads;
+    private final IndexType type;
+    private int eboID;
+
+    public QuadIndexBuffer(int maxQuads) {
+        this.maxQuads = maxQuads;
+        this.type = (long) maxQuads * VERTICES_PER_QUAD <= MAX_SHORT_VERTICES ? IndexType.UNSIGNED_SHORT : IndexType.UNSIGNED_INT;
+    }
+
+    /**
+     * Binds the buffer into the bound vertex array, uploading the indices on first use.
+     * Must be called on the thread owning the GL context.
+     */
+    public void bind() {
+        if (eboID == 0) {
+            upload();
+        } else {
+            Graphics.backend().bindBuffer(BufferTarget.INDEX, eboID);
+        }
+    }
+
+    private void upload() {
+        int indexCount = maxQuads * INDICES_PER_QUAD;
+        ByteBuffer indices = memAlloc(indexCount * type.bytes);
+        for (int i = 0; i < maxQuads; i++) {
+            int offset = VERTICES_PER_QUAD * i;
+            // Tri 1
+            putIndex(indices, offset + 3);
+            putIndex(indices, offset + 2);
+            putIndex(indices, offset);
+            // Tri 2
+            putIndex(indices, offset);
+            putIndex(indices, offset + 2);
+            putIndex(indices, offset + 1);
+        }
+        indices.flip();
+
+        // Created while the vertex array is bound, which attaches the buffer to it
+        long bytes = indices.remaining();
+        eboID = Graphics.backend().createBuffer(BufferTarget.INDEX, bytes, BufferUsage.STATIC);
+        Graphics.backend().uploadBuffer(BufferTarget.INDEX, eboID, 0, memAddress(indices), bytes);
+        memFree(indices);
+    }
+
+    private void putIndex(ByteBuffer indices, int index) {
+        if (type == IndexType.UNSIGNED_SHORT) {
+            indices.putShort((short) index);
+        } else {
+            indices.putInt(index);
+        }
+    }
+
+    /**
+     * @return the byte offset of the first index of a quad, as passed to the draw call.
+     */
+    public long getOffset(int firstQuad) {
+        return (long) firstQuad * INDICES_PER_QUAD * type.bytes;
+    }
+
+    public IndexType getType() {
+        return type;
+    }
+
+    public int getMaxQuads() {
+        return maxQuads;
+    }
+
+    public void destroy() {
+        if (eboID != 0) {
+            Graphics.backend().deleteBuffer(eboID);
+            eboID = 0;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.raven.renderer;
+
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.raven.objects.components.SpriteRenderer;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.AttributeType;
+import org.raven.util.Asset;
+
+/**
+ * Batch that expands every sprite into a quad of four full vertices.
+ */
+public class QuadRenderBatch extends RenderBatch {
+    /*
+     | Vertex Layout                        | All values are floats                  |
+     | ============================================================================= |
+     | // Pos           // Color                        // Tex Coords       // TexID |
+     | x, y,            r, g, b, a,                     x, y,               id       |
+    */
+    private static final int POS_SIZE = 2;
+    private static final int COLOR_SIZE = 4;
+    private static final int TEX_COORDS_SIZE = 2;
+    private static final int TEX_ID_SIZE = 1;
+
+    private static final int POS_OFFSET = 0;
+    private static final int COLOR_OFFSET = POS_OFFSET + POS_SIZE * Float.BYTES;
+    private static final int TEX_COORDS_OFFSET = COLOR_OFFSET + COLOR_SIZE * Float.BYTES;
+    private static final int TEX_ID_OFFSET = TEX_COORDS_OFFSET + TEX_COORDS_SIZE * Float.BYTES;
+
+    private static final int VERTEX_SIZE = 9;
+    private static final int VERTEX_SIZE_BYTES = VERTEX_SIZE * Float.BYTES;
+    private static final int VERTICES_PER_SPRITE = 4;
+    private static final int SPRITE_SIZE = VERTICES_PER_SPRITE * VERTEX_SIZE;
+
+    private QuadIndexBuffer indexBuffer;
+    // Whether the batch created the index buffer itself instead of sharing one
+    private boolean ownsIndexBuffer;
+
+    public QuadRenderBatch(int maxBatchSize, int zIndex) {
+        this(maxBatchSize, zIndex, StorageMode.DIRECT);
+    }
+
+    public QuadRenderBatch(int maxBatchSize, int zIndex, StorageMode storageMode) {
+        this(maxBatchSize, zIndex, storageMode, null);
+    }
+
+    public QuadRenderBatch(int maxBatchSize, int zIndex, StorageMode storageMode, TextureArray textureArray) {
+        this(maxBatchSize, zIndex, storageMode, textureArray, SPRITE_SIZE);
+    }
+
+    /**
+     * For quad batches with a different vertex layout, sharing the index buffer and draw logic.
+     * @param spriteSize size of the four vertices of a sprite in 4 byte words.
+     */
+    protected QuadRenderBatch(int maxBatchSize, int zIndex, StorageMode storageMode, TextureArray textureArray, int spriteSize) {
+        super(maxBatchSize, zIndex, storageMode, textureArray, spriteSize, Asset.SHADER_DEFAULT);
+    }
+
+    /**
+     * Shares the index buffer with other batches instead of creating one per batch.
+     * Must be called before {@link #start()}; ignored if the buffer holds fewer quads than the batch.
+     */
+    public void setIndexBuffer(QuadIndexBuffer indexBuffer) {
+        this.indexBuffer = indexBuffer;
+    }
+
+    @Override
+    protected void setupVertexAttributes(int vboID) {
+        if (indexBuffer == null || indexBuffer.getMaxQuads() < maxBatchSize) {
+            indexBuffer = new QuadIndexBuffer(maxBatchSize);
+            ownsIndexBuffer = true;
+        }
+        indexBuffer.bind();
+
+        enableAttributes();
+    }
+
+    /**
+     * Enables the attribute pointers of the vertex layout, with the vertex buffer bound.
+     */
+    protected void enableAttributes() {
+        RenderBackend backend = Graphics.backend();
+        backend.vertexAttribute(0, POS_SIZE, AttributeType.FLOAT, false, VERTEX_SIZE_BYTES, POS_OFFSET, 0);
+        backend.vertexAttribute(1, COLOR_SIZE, AttributeType.FLOAT, false, VERTEX_SIZE_BYTES, COLOR_OFFSET, 0);
+        backend.vertexAttribute(2, TEX_COORDS_SIZE, AttributeType.FLOAT, false, VERTEX_SIZE_BYTES, TEX_COORDS_OFFSET, 0);
+        backend.vertexAttribute(3, TEX_ID_SIZE, AttributeType.FLOAT, false, VERTEX_SIZE_BYTES, TEX_ID_OFFSET, 0);
+    }
+
+    @Override
+    protected void draw(int first, int count) {
+        int indexCount = count * QuadIndexBuffer.INDICES_PER_QUAD;
+        int baseVertex = getBaseSprite() * VERTICES_PER_SPRITE;
+        if (baseVertex == 0) {
+            Graphics.backend().drawElements(indexCount, indexBuffer.getType(), indexBuffer.getOffset(first));
+        } else {
+            // Streamed vertices start wherever this frame's allocation landed, the shared indices start at 0
+            Graphics.backend().drawElementsBaseVertex(indexCount, indexBuffer.getType(), indexBuffer.getOffset(first), baseVertex);
+        }
+    }
+
+    @Override
+    protected void deleteBuffers() {
+        if (ownsIndexBuffer) {
+            indexBuffer.destroy();
+            indexBuffer = null;
+            ownsIndexBuffer = false;
+        }
+    }
+
+    @Override
+    protected void loadVertexProperties(int i) {
+        SpriteRenderer sprite = this.sprites[i];
+
+        // Find offset within array (4 per sprite)
+        int offset = i * SPRITE_SIZE;
+
+        Vector4f color = sprite.getColor();
+        Vector2f[] textCoords = sprite.getTexCoords();
+
+        int texID = getTexID(sprite);
+
+        // Add vertex with the appropriate properties
+        float xAdd = 1.0f;
+        float yAdd = 1.0f;
+        for (int j = 0; j < 4; j++) {
+            if (j == 1) yAdd = 0.0f;
+            if (j == 2) xAdd = 0.0f;
+            if (j == 3) yAdd = 1.0f;
+
+            // Load positions
+            float xPos = sprite.getGameObject().getTransform().getPosition().x();
+            float yPos = sprite.getGameObject().getTransform().getPosition().y();
+            float xScale = sprite.getGameObject().getTransform().getScale().x();
+            float yScale = sprite.getGameObject().getTransform().getScale().y();
+            vertices.put(offset, xPos + (xAdd * xScale));
+            vertices.put(offset + 1, yPos + (yAdd * yScale));
+
+            // Load color
+            vertices.put(offset + 2, color.x);
+            vertices.put(offset + 3, color.y);
+            vertices.put(offset + 4, color.z);
+            vertices.put(offset + 5, color.w);
+
+            // Load Texture Coords
+            vertices.put(offset + 6, textCoords[j].x);
+            vertices.put(offset + 7, textCoords[j].y);
+
+            // Load Texture ID
+            vertices.put(offset + 8, texID);
+
+            offset += VERTEX_SIZE;
+        }
+    }
+}
@@ -1,222 +1,792 @@
 package org.raven.renderer;
 
-import org.joml.Matrix4f;
-import org.joml.Vector2f;
+import org.joml.Vector2fc;
 import org.joml.Vector4f;
-import org.raven.Window;
 import org.raven.objects.components.SpriteRenderer;
-import org.raven.util.Asset;
+import org.lwjgl.BufferUtils;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.BufferTarget;
+import org.raven.renderer.backend.RenderBackend.BufferUsage;
+import org.raven.renderer.backend.RenderBackend.TextureTarget;
 import org.raven.util.AssetPool;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
-
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
-import static org.lwjgl.opengl.GL30.glGenVertexArrays;
-
-public class RenderBatch implements Comparable<RenderBatch>{
-    /*
-     | Vertex Layout                        | All values are floats                  |
-     | ============================================================================= |
-     | // Pos           // Color                        // Tex Coords       // TexID |
-     | x, y,            r, g, b, a,                     x, y,               id       |
-    */
-    private static final int POS_SIZE = 2;
-    private static final int COLOR_SIZE = 4;
-    private static final int TEX_COORDS_SIZE = 2;
-    private static final int TEX_ID_SIZE = 1;
-
-    private static final int POS_OFFSET = 0;
-    private static final int COLOR_OFFSET = POS_OFFSET + POS_SIZE * Float.BYTES;
-    private static final int TEX_COORDS_OFFSET = COLOR_OFFSET + COLOR_SIZE * Float.BYTES;
-    private static final int TEX_ID_OFFSET = TEX_COORDS_OFFSET + TEX_COORDS_SIZE * Float.BYTES;
-
-    private static final int VERTEX_SIZE = 9;
-    private static final int VERTEX_SIZE_BYTES = VERTEX_SIZE * Float.BYTES;
-
-    private SpriteRenderer[] sprites;
-    private int numSprites;
+import java.util.Map;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Sprite bookkeeping shared by all batch implementations: slot management, texture slots,
+ * dirty range tracking and vertex storage. Subclasses decide how a sprite is laid out in
+ * the vertex buffer and how the batch is drawn.
+ */
+public abstract class RenderBatch implements Comparable<RenderBatch>{
+
+    /**
+     * Where the batch keeps its vertex data on the CPU side.
+     * DIRECT writes into a natively allocated buffer that is uploaded with glBufferSubData.
+     * PERSISTENT keeps the same native buffer and copies dirty ranges into a persistently mapped GL
+     * buffer holding one region per frame in flight, so a region is only written once the renderer's
+     * frame fence says the GPU finished drawing from it. Without a renderer fencing frames it races the GPU.
+     * STREAMING keeps the vertices in native memory like DIRECT and copies the drawn sprites into a
+     * fresh region of a shared {@link StreamBuffer} every frame, so it never writes memory the GPU
+     * still reads. It requires a stream buffer, see {@link #setStreamBuffer}, and instanced batches
+     * drawn from it require base instance support. As it copies every drawn sprite each frame, changed
+     * or not, it only pays off for batches whose sprites nearly all change every frame.
+     */
+    public enum StorageMode {
+        DIRECT,
+        PERSISTENT,
+        STREAMING;
+
+        /**
+         * Both upload only dirty ranges; persistent mapping requires buffer storage (GL 4.4 or
+         * ARB_buffer_storage). Must be called with a current GL context.
+         */
+        public static StorageMode preferred() {
+            return Graphics.backend().supportsPersistentMapping() ? PERSISTENT : DIRECT;
+        }
+    }
+
+    // Dirty slots separated by at most this many clean slots are uploaded as one range,
+    // trading a few redundant bytes for fewer glBufferSubData calls.
+    private static final int MAX_RANGE_GAP = 4;
+
+    private static final int MAX_TEXTURES = 8;
+
+    // Culled sprites separated by at most this many visible ones are drawn anyway,
+    // as an extra draw call costs more than a few off screen quads.
+    private static final int MAX_CULL_GAP = 16;
+
+    // Shader define selecting the texture array variant
+    private static final String TEXTURE_ARRAY_DEFINE = "TEXTURE_ARRAY";
+
+    /**
+     * Copy of everything {@link #submit(Snapshot, Vector4f)} needs, taken by {@link #capture(Snapshot)},
+     * so a render thread can draw the batch while the update thread already changes it.
+     */
+    public static class Snapshot {
+        private int numSprites;
+        private int[] ranges = new int[16];
+        private int rangeCount;
+        // Vertices of all ranges back to back
+        private FloatBuffer staging = BufferUtils.createFloatBuffer(1024);
+        private final Vector4f bounds = new Vector4f();
+        private float[] spriteBounds = new float[0];
+        private final int[] textureIds = new int[MAX_TEXTURES];
+    }
+
+    protected SpriteRenderer[] sprites;
+    private Map<SpriteRenderer, Integer> spriteIndices;
+    protected int numSprites;
     private boolean hasRoom;
-    private float[] vertices;
+    protected FloatBuffer vertices;
+    private StorageMode storageMode;
     private List<Texture> textures;
+    private int[] textureUsers;
+    private int[] spriteTextureSlots;
     private int[] texSlots = {0, 1, 2, 3, 4, 5, 6, 7};
+    // GL names of the textures per slot, 0 for empty slots
+    private int[] textureIds = new int[MAX_TEXTURES];
+    private TextureArray textureArray;
 
     private int vaoID;
     private int vboID;
-    private int maxBatchSize;
+    // Shared vertex buffer of streaming batches and the sprite slot 0 was last written to
+    private StreamBuffer streamBuffer;
+    private int streamGeneration;
+    private int baseSprite;
+    // Mapping of persistent storage, the region drawn last and the ranges of the frames since each
+    // other region was written, oldest first
+    private long mappedAddress;
+    private int region;
+    private int[][] rangeHistory;
+    private int[] rangeHistoryCounts;
+    private int rangeHistoryNext;
+    protected int maxBatchSize;
+    private final String shaderPath;
     private Shader shader;
     private int zIndex;
-
-    public RenderBatch(int maxBatchSize, int zIndex) {
+    private boolean started;
+
+    // Static batches are only scanned for changes after sprites were added, removed or invalidated
+    private boolean isStatic;
+    private boolean invalidated;
+
+    // Set when any sprite of the batch was marked dirty, so unchanged batches skip the dirty scan
+    private boolean changed;
+    // Set when the batch was cleared and refilled, so the next prepare writes every appended sprite
+    private boolean refilled;
+    private final Runnable dirtyListener = () -> changed = true;
+
+    // Floats, or 4 byte words of a packed layout, written per sprite by the subclass
+    private final int spriteSize;
+
+    // Slots changed outside of sprite dirty flags (e.g. when adding sprites), uploaded on next render.
+    private int pendingMin = Integer.MAX_VALUE;
+    private int pendingMax = -1;
+
+    // Slot ranges as (first, last) pairs written by prepare and uploaded by submit
+    private int[] ranges = new int[16];
+    private int rangeCount;
+
+    // World space bounds of every slot and the whole batch as (minX, minY, maxX, maxY)
+    private float[] spriteBounds;
+    private final Vector4f bounds = new Vector4f();
+    private boolean boundsDirty = true;
+
+    // Upload statistics of the last render call
+    private int bytesUploaded;
+    private int uploadCalls;
+
+    // Culling statistics of the last render call
+    private int spritesDrawn;
+    private int spritesCulled;
+    private int drawCalls;
+
+    /**
+     * @param textureArray when set, all textures of the batch are layers of this array instead of separate
+     *                     texture slots, so the batch is only limited by its sprite count.
+     */
+    protected RenderBatch(int maxBatchSize, int zIndex, StorageMode storageMode, TextureArray textureArray,
+                          int spriteSize, String shaderPath) {
         this.zIndex = zIndex;
-        shader = AssetPool.getShader(Asset.SHADER_DEFAULT);
-        shader.compileAndLink();
+        this.storageMode = storageMode;
+        this.textureArray = textureArray;
+        this.spriteSize = spriteSize;
+        this.shaderPath = shaderPath;
         this.sprites = new SpriteRenderer[maxBatchSize];
+        this.spriteIndices = new HashMap<>();
+        this.spriteTextureSlots = new int[maxBatchSize];
+        this.spriteBounds = new float[maxBatchSize * 4];
         this.maxBatchSize = maxBatchSize;
 
-        // 4 vertices quads
-        vertices = new float[maxBatchSize * 4 * VERTEX_SIZE];
-
         this.numSprites = 0;
         this.hasRoom = true;
         this.textures = new ArrayList<>();
+        this.textureUsers = new int[MAX_TEXTURES];
+
+        vertices = memAllocFloat(maxBatchSize * spriteSize);
+        if (storageMode == StorageMode.PERSISTENT) {
+            rangeHistory = new int[FrameFences.FRAMES - 1][16];
+            rangeHistoryCounts = new int[FrameFences.FRAMES - 1];
+        }
     }
 
+    /**
+     * Creates the GL objects of the batch. Sprites can be added before.
+     */
     public void start() {
+        shader = textureArray == null ? AssetPool.getShader(shaderPath) : AssetPool.getShader(shaderPath, TEXTURE_ARRAY_DEFINE);
+
+        RenderBackend backend = Graphics.backend();
+
         // Generate and bind vertex array object (VAO)
-        vaoID = glGenVertexArrays();
-        glBindVertexArray(vaoID);
+        vaoID = backend.createVertexArray();
+        GLState.bindVertexArray(vaoID);
 
         // Allocate space for vertices
-        vboID = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vboID);
-        glBufferData(GL_ARRAY_BUFFER, (long) vertices.length * Float.BYTES, GL_DYNAMIC_DRAW);
+        long vertexBytes = (long) maxBatchSize * spriteSize * Float.BYTES;
+        if (storageMode == StorageMode.STREAMING) {
+            if (streamBuffer == null) {
+                throw new IllegalStateException("Streaming batch started without a stream buffer.");
+            }
+            streamBuffer.bind();
+            vboID = streamBuffer.getBufferId();
+            streamGeneration = streamBuffer.getGeneration();
+        } else if (storageMode == StorageMode.PERSISTENT) {
+            // Immutable storage mapped once for the lifetime of the batch, dirty ranges are flushed explicitly
+            long bufferBytes = vertexBytes * FrameFences.FRAMES;
+            vboID = backend.createMappedBuffer(BufferTarget.VERTEX, bufferBytes);
+            mappedAddress = memAddress(backend.mapBuffer(BufferTarget.VERTEX, vboID, bufferBytes));
+        } else {
+            vboID = backend.createBuffer(BufferTarget.VERTEX, vertexBytes, isStatic ? BufferUsage.STATIC : BufferUsage.DYNAMIC);
+        }
 
-        // Create and upload indices buffer to prevent index duplication in RenderTime
-        int eboID = glGenBuffers();
-        int[] indices = generateIndices();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        setupVertexAttributes(vboID);
+        GLState.bindVertexArray(0);
 
-        // Enable buffer attribute pointers
-        glVertexAttribPointer(0, POS_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, POS_OFFSET);
-        glEnableVertexAttribArray(0);
+        // Sampler units never change, so they are set once instead of every frame
+        shader.use();
+        if (textureArray != null) {
+            shader.uploadTexture("uTextureArray", 1);
+        } else {
+            shader.uploadIntArray("uTextures", texSlots);
+        }
+        started = true;
+    }
 
-        glVertexAttribPointer(1, COLOR_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, COLOR_OFFSET);
-        glEnableVertexAttribArray(1);
+    public boolean isStarted() {
+        return started;
+    }
 
-        glVertexAttribPointer(2, TEX_COORDS_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, TEX_COORDS_OFFSET);
-        glEnableVertexAttribArray(2);
+    /**
+     * Sets the buffer a STREAMING batch writes its vertices to each frame. Must be called before {@link #start()}.
+     */
+    public void setStreamBuffer(StreamBuffer streamBuffer) {
+        this.streamBuffer = streamBuffer;
+    }
 
-        glVertexAttribPointer(3, TEX_ID_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, TEX_ID_OFFSET);
-        glEnableVertexAttribArray(3);
+    /**
+     * Makes this a batch for sprites that rarely change, see {@link #invalidate()}. Must be called
+     * before {@link #start()}; static batches should use DIRECT storage to get a GL_STATIC_DRAW buffer.
+     */
+    public void setStatic(boolean isStatic) {
+        this.isStatic = isStatic;
+    }
 
+    public boolean isStatic() {
+        return isStatic;
     }
 
-    private int[] generateIndices() {
-        // 6 indices per quad (3 per tri)
-        int[] elements = new int[6 * maxBatchSize];
-        for (int i = 0; i < maxBatchSize; i++) {
-            loadElementIndices(elements, i);
-        }
-        return elements;
+    /**
+     * Makes the next {@link #prepare()} of a static batch pick up sprites marked dirty.
+     */
+    public void invalidate() {
+        invalidated = true;
+    }
+
+    /**
+     * Creates any additional buffers and enables the attribute pointers of the batch layout.
+     * Called with the VAO and the sprite vertex buffer bound.
+     */
+    protected abstract void setupVertexAttributes(int vboID);
+
+    /**
+     * Writes the vertex data of the sprite in slot {@code i} to {@code vertices}.
+     */
+    protected abstract void loadVertexProperties(int i);
+
+    /**
+     * Issues the draw call for {@code count} sprites starting at slot {@code first} with the VAO bound.
+     * Slot 0 is sprite {@link #getBaseSprite()} of the vertex buffer.
+     */
+    protected abstract void draw(int first, int count);
+
+    /**
+     * @return the sprite index of slot 0 in the vertex buffer, only other than 0 for streaming and persistent batches.
+     */
+    protected int getBaseSprite() {
+        return baseSprite;
+    }
+
+    /**
+     * Whether {@link #draw(int, int)} can start at any slot. When false, partially visible
+     * batches are drawn in full.
+     */
+    protected boolean canDrawRanges() {
+        return true;
+    }
+
+    /**
+     * Releases buffers created in {@link #setupVertexAttributes(int)}.
+     */
+    protected void deleteBuffers() {
+        // No additional buffers by default
     }
 
     public void addSprite(SpriteRenderer spr) {
         // Get index and add object
         int index = this.numSprites;
         this.sprites[index] = spr;
+        this.spriteIndices.put(spr, index);
         this.numSprites++;
+        spr.setDirtyListener(dirtyListener);
 
         // Check if sprite contains texture not yet added to texture list and add it.
-        if (spr.getTexture() != null && !textures.contains(spr.getTexture()))
-            textures.add(spr.getTexture());
+        spriteTextureSlots[index] = acquireTexture(spr.getTexture());
 
         // Add properties to local vertex array
-        loadVertexProperties(index);
+        loadSprite(index);
+        markPending(index);
 
         if (numSprites >= this.maxBatchSize) {
             this.hasRoom = false;
         }
     }
 
+    /**
+     * Removes a sprite by moving the last sprite of the batch into its slot, so only that
+     * slot has to be rewritten. The vacated last slot falls outside the draw range.
+     * @return false if the sprite is not part of this batch.
+     */
+    public boolean removeSprite(SpriteRenderer spr) {
+        Integer index = spriteIndices.remove(spr);
+        if (index == null) {
+            return false;
+        }
+
+        releaseTexture(spriteTextureSlots[index]);
+        spr.setDirtyListener(null);
+
+        int last = numSprites - 1;
+        if (index != last) {
+            SpriteRenderer moved = sprites[last];
+            sprites[index] = moved;
+            spriteTextureSlots[index] = spriteTextureSlots[last];
+            spriteIndices.put(moved, index);
+            loadSprite(index);
+            markPending(index);
+        }
+        sprites[last] = null;
+        numSprites--;
+
+        // Removed slots past the draw range no longer need uploading
+        pendingMax = Math.min(pendingMax, numSprites - 1);
+
+        this.hasRoom = true;
+        this.boundsDirty = true;
+        return true;
+    }
+
+    /**
+     * Empties the batch so it can be refilled from scratch with {@link #appendSprite}, as the
+     * render queue does every frame. Sprites added with {@link #addSprite} are not told they left.
+     */
+    void clear() {
+        Arrays.fill(sprites, 0, numSprites, null);
+        spriteIndices.clear();
+        numSprites = 0;
+        hasRoom = true;
+        textures.clear();
+        Arrays.fill(textureUsers, 0);
+        Arrays.fill(textureIds, 0);
+        pendingMin = Integer.MAX_VALUE;
+        pendingMax = -1;
+        boundsDirty = true;
+        refilled = true;
+    }
+
+    /**
+     * Adds a sprite for a single frame. Unlike {@link #addSprite} the sprite is neither tracked for
+     * removal nor listened to; its vertices are written by the next {@link #prepare()}.
+     */
+    void appendSprite(SpriteRenderer spr) {
+        int index = numSprites++;
+        sprites[index] = spr;
+        spriteTextureSlots[index] = acquireTexture(spr.getTexture());
+        markPending(index);
+        if (numSprites >= maxBatchSize) {
+            hasRoom = false;
+        }
+    }
+
+    public void destroy() {
+        if (started) {
+            Graphics.backend().deleteVertexArray(vaoID);
+            GLState.vertexArrayDeleted(vaoID);
+            // The stream buffer is shared and outlives the batch
+            if (storageMode != StorageMode.STREAMING) {
+                Graphics.backend().deleteBuffer(vboID);
+            }
+            deleteBuffers();
+            started = false;
+        }
+        memFree(vertices);
+        vertices = null;
+        mappedAddress = 0;
+    }
+
+    private int acquireTexture(Texture tex) {
+        // Array layers are owned by the texture array and outlive the sprites of a batch
+        if (tex == null || textureArray != null) {
+            return -1;
+        }
+
+        int slot = textures.indexOf(tex);
+        if (slot < 0) {
+            // Reuse slots of textures that are no longer referenced before growing the list
+            slot = textures.indexOf(null);
+            if (slot < 0) {
+                slot = textures.size();
+                textures.add(tex);
+            } else {
+                textures.set(slot, tex);
+            }
+            textureIds[slot] = tex.getTexId();
+        }
+        textureUsers[slot]++;
+        return slot;
+    }
+
+    private void releaseTexture(int slot) {
+        if (slot < 0) {
+            return;
+        }
+
+        textureUsers[slot]--;
+        if (textureUsers[slot] == 0) {
+            // Keep the slot as a hole so texture IDs of other sprites stay valid
+            textures.set(slot, null);
+            textureIds[slot] = 0;
+        }
+    }
+
     public void render() {
+        render(null);
+    }
 
-        boolean rebufferData = false;
+    /**
+     * Uploads dirty sprites and draws the sprites overlapping the visible area.
+     * @param visibleArea world space rectangle as (minX, minY, maxX, maxY), or null to draw everything.
+     */
+    public void render(Vector4f visibleArea) {
+        prepare();
+        submit(visibleArea);
+    }
+
+    /**
+     * CPU half of rendering: writes the vertices of dirty sprites and collects the ranges to upload.
+     * Makes no GL calls, so batches can be prepared on worker threads, as long as each batch is
+     * prepared by one thread and nothing adds or removes sprites meanwhile.
+     */
+    public void prepare() {
+        rangeCount = 0;
+        boolean scan = pendingMax >= 0 || (isStatic ? invalidated : changed);
+        if (!scan) {
+            return;
+        }
+        invalidated = false;
+        changed = false;
+        boolean refilled = this.refilled;
+        this.refilled = false;
+
+        // Collect dirty slots into ranges, merging ranges separated by small gaps
+        int rangeStart = -1;
+        int rangeEnd = -1;
         for (int i = 0; i < numSprites; i++) {
             SpriteRenderer spr = sprites[i];
-            if (spr.isDirty()) {
-                loadVertexProperties(i);
-                spr.clean();
-                rebufferData = true;
+            boolean pending = i >= pendingMin && i <= pendingMax;
+            if (spr.isDirty() || pending) {
+                if (spr.isDirty() || refilled) {
+                    loadSprite(i);
+                    spr.clean();
+                }
+
+                if (rangeStart < 0) {
+                    rangeStart = i;
+                } else if (i - rangeEnd > MAX_RANGE_GAP + 1) {
+                    addRange(rangeStart, rangeEnd);
+                    rangeStart = i;
+                }
+                rangeEnd = i;
             }
         }
+        if (rangeStart >= 0) {
+            addRange(rangeStart, rangeEnd);
+        }
+        pendingMin = Integer.MAX_VALUE;
+        pendingMax = -1;
+
+        // Recompute the bounds here rather than on the GL thread
+        getBounds();
+    }
+
+    private void addRange(int first, int last) {
+        if (rangeCount * 2 == ranges.length) {
+            ranges = Arrays.copyOf(ranges, ranges.length * 2);
+        }
+        ranges[rangeCount * 2] = first;
+        ranges[rangeCount * 2 + 1] = last;
+        rangeCount++;
+    }
 
-        // Rebuffer data when sprites are dirty
-        if (rebufferData) {
-            glBindBuffer(GL_ARRAY_BUFFER, vboID);
-            glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
+    /**
+     * Copies the ranges collected by the last {@link #prepare()} and everything needed to draw the
+     * batch into the snapshot. The ranges are then considered uploaded.
+     */
+    public void capture(Snapshot snapshot) {
+        if (storageMode != StorageMode.DIRECT) {
+            throw new IllegalStateException("Only DIRECT batches can be captured, others are drawn from per frame regions.");
         }
+        snapshot.numSprites = numSprites;
+        if (snapshot.ranges.length < rangeCount * 2) {
+            snapshot.ranges = new int[ranges.length];
+        }
+        System.arraycopy(ranges, 0, snapshot.ranges, 0, rangeCount * 2);
+        snapshot.rangeCount = rangeCount;
 
-        // Use shader
-        // TODO GRASP the shader loading for projection and view matrices to the camera class
-        Matrix4f projectionMatrix = Window.get().getSceneManager().getCurrentScene().getCamera().getProjectionMatrix();
-        Matrix4f viewMatrix = Window.get().getSceneManager().getCurrentScene().getCamera().getViewMatrix();
+        int stagingFloats = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            stagingFloats += (ranges[i * 2 + 1] - ranges[i * 2] + 1) * spriteSize;
+        }
+        if (snapshot.staging.capacity() < stagingFloats) {
+            snapshot.staging = BufferUtils.createFloatBuffer(Math.max(stagingFloats, snapshot.staging.capacity() * 2));
+        }
+        long target = memAddress(snapshot.staging);
+        for (int i = 0; i < rangeCount; i++) {
+            long byteOffset = (long) ranges[i * 2] * spriteSize * Float.BYTES;
+            long byteLength = (long) (ranges[i * 2 + 1] - ranges[i * 2] + 1) * spriteSize * Float.BYTES;
+            memCopy(memAddress(vertices) + byteOffset, target, byteLength);
+            target += byteLength;
+        }
+        rangeCount = 0;
 
-        shader.use();
-        shader.uploadMat4f("uProj", projectionMatrix);
-        shader.uploadMat4f("uView", viewMatrix);
-        for (int i = 0; i < textures.size(); i++) {
-            glActiveTexture(GL_TEXTURE0 + i + 1);
-            textures.get(i).bind();
+        snapshot.bounds.set(getBounds());
+        if (snapshot.spriteBounds.length < numSprites * 4) {
+            snapshot.spriteBounds = new float[spriteBounds.length];
+        }
+        System.arraycopy(spriteBounds, 0, snapshot.spriteBounds, 0, numSprites * 4);
+        System.arraycopy(textureIds, 0, snapshot.textureIds, 0, MAX_TEXTURES);
+    }
+
+    /**
+     * GL half of rendering: uploads the ranges collected by the last {@link #prepare()} and draws
+     * the sprites inside the visible area. Must be called on the thread owning the GL context.
+     */
+    public void submit(Vector4f visibleArea) {
+        resetStatistics();
+        if (storageMode == StorageMode.STREAMING) {
+            // Every frame writes a new region, so dirty ranges do not matter, only whether anything is drawn
+            rangeCount = 0;
+            if (numSprites > 0 && (visibleArea == null || intersects(getBounds(), visibleArea))) {
+                stream();
+            }
+            drawSprites(numSprites, textureIds, getBounds(), spriteBounds, visibleArea);
+            return;
+        }
+        if (storageMode == StorageMode.PERSISTENT) {
+            writeRegion();
+        } else {
+            for (int i = 0; i < rangeCount; i++) {
+                long byteOffset = (long) ranges[i * 2] * spriteSize * Float.BYTES;
+                uploadRange(ranges[i * 2], ranges[i * 2 + 1], memAddress(vertices) + byteOffset);
+            }
         }
-        shader.uploadIntArray("uTextures", texSlots);
+        rangeCount = 0;
 
-        glBindVertexArray(vaoID);
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
+        drawSprites(numSprites, textureIds, getBounds(), spriteBounds, visibleArea);
+    }
 
-        glDrawElements(GL_TRIANGLES, this.numSprites * 6, GL_UNSIGNED_INT, 0);
+    /**
+     * Moves on to the next region of the mapped buffer, last drawn {@value FrameFences#FRAMES} submits
+     * ago and thus fenced by the renderer, and brings it up to date: the ranges of this frame and of
+     * the frames in between are copied into it.
+     */
+    private void writeRegion() {
+        region = (region + 1) % FrameFences.FRAMES;
+        long regionOffset = (long) region * maxBatchSize * spriteSize * Float.BYTES;
+        for (int i = 0; i < rangeHistory.length; i++) {
+            copyRanges(rangeHistory[i], rangeHistoryCounts[i], regionOffset);
+        }
+        copyRanges(ranges, rangeCount, regionOffset);
 
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(1);
-        glBindVertexArray(0);
+        // The oldest ranges are now in every region, this frame's take their place
+        int next = rangeHistoryNext;
+        if (rangeHistory[next].length < rangeCount * 2) {
+            rangeHistory[next] = new int[ranges.length];
+        }
+        System.arraycopy(ranges, 0, rangeHistory[next], 0, rangeCount * 2);
+        rangeHistoryCounts[next] = rangeCount;
+        rangeHistoryNext = (next + 1) % rangeHistory.length;
+
+        baseSprite = region * maxBatchSize;
+    }
 
-        for (Texture texture : textures) {
-            texture.unbind();
+    private void copyRanges(int[] slotRanges, int count, long regionOffset) {
+        for (int i = 0; i < count; i++) {
+            long byteOffset = (long) slotRanges[i * 2] * spriteSize * Float.BYTES;
+            long byteLength = (long) (slotRanges[i * 2 + 1] - slotRanges[i * 2] + 1) * spriteSize * Float.BYTES;
+            memCopy(memAddress(vertices) + byteOffset, mappedAddress + regionOffset + byteOffset, byteLength);
+            Graphics.backend().flushBuffer(BufferTarget.VERTEX, vboID, regionOffset + byteOffset, byteLength);
+            bytesUploaded += byteLength;
+            uploadCalls++;
+            GLState.countCalls(1);
         }
-        shader.detach();
     }
 
-    private void loadVertexProperties(int i) {
-        SpriteRenderer sprite = this.sprites[i];
+    /**
+     * Uploads and draws a snapshot of this batch, starting the batch first if needed.
+     * Must be called on the thread owning the GL context, in the order the snapshots were captured.
+     */
+    public void submit(Snapshot snapshot, Vector4f visibleArea) {
+        if (!started) {
+            start();
+        }
 
-        // Find offset within array (4 per sprite)
-        int offset = i * 4 * VERTEX_SIZE;
+        resetStatistics();
+        long source = memAddress(snapshot.staging);
+        for (int i = 0; i < snapshot.rangeCount; i++) {
+            int first = snapshot.ranges[i * 2];
+            int last = snapshot.ranges[i * 2 + 1];
+            uploadRange(first, last, source);
+            source += (long) (last - first + 1) * spriteSize * Float.BYTES;
+        }
 
-        Vector4f color = sprite.getColor();
-        Vector2f[] textCoords = sprite.getTexCoords();
+        drawSprites(snapshot.numSprites, snapshot.textureIds, snapshot.bounds, snapshot.spriteBounds, visibleArea);
+    }
 
-        int texID = getTexID(sprite);
+    /**
+     * Copies the vertices of all sprites into this frame's region of the stream buffer.
+     */
+    private void stream() {
+        int spriteBytes = spriteSize * Float.BYTES;
+        long bytes = (long) numSprites * spriteBytes;
+        long offset = streamBuffer.allocate(bytes, spriteBytes);
+
+        // The buffer was replaced since the attributes were set up
+        if (streamGeneration != streamBuffer.getGeneration()) {
+            GLState.bindVertexArray(vaoID);
+            streamBuffer.bind();
+            vboID = streamBuffer.getBufferId();
+            setupVertexAttributes(vboID);
+            streamGeneration = streamBuffer.getGeneration();
+        }
 
-        // Add vertex with the appropriate properties
-        float xAdd = 1.0f;
-        float yAdd = 1.0f;
-        for (int j = 0; j < 4; j++) {
-            if (j == 1) yAdd = 0.0f;
-            if (j == 2) xAdd = 0.0f;
-            if (j == 3) yAdd = 1.0f;
+        streamBuffer.write(offset, memAddress(vertices), bytes);
+        baseSprite = (int) (offset / spriteBytes);
+        bytesUploaded += bytes;
+        uploadCalls++;
+    }
 
-            // Load positions
-            float xPos = sprite.getGameObject().getTransform().getPosition().x;
-            float yPos = sprite.getGameObject().getTransform().getPosition().y;
-            float xScale = sprite.getGameObject().getTransform().getScale().x;
-            float yScale = sprite.getGameObject().getTransform().getScale().y;
-            vertices[offset] = xPos + (xAdd * xScale);
-            vertices[offset + 1] = yPos + (yAdd * yScale);
+    private void resetStatistics() {
+        bytesUploaded = 0;
+        uploadCalls = 0;
+        spritesDrawn = 0;
+        spritesCulled = 0;
+        drawCalls = 0;
+    }
 
-            // Load color
-            vertices[offset + 2] = color.x;
-            vertices[offset + 3] = color.y;
-            vertices[offset + 4] = color.z;
-            vertices[offset + 5] = color.w;
+    private void drawSprites(int count, int[] texIds, Vector4f batchBounds, float[] slotBounds, Vector4f visibleArea) {
+        // Skip all GL state changes for batches entirely off screen
+        if (visibleArea != null && !intersects(batchBounds, visibleArea)) {
+            spritesCulled = count;
+            return;
+        }
 
-            // Load Texture Coords
-            vertices[offset + 6] = textCoords[j].x;
-            vertices[offset + 7] = textCoords[j].y;
+        // Camera matrices come from the uniform buffer the renderer fills once per frame,
+        // redundant program, texture and vertex array binds are skipped by the state tracker
+        shader.use();
+        if (textureArray != null) {
+            GLState.bindTexture(1, TextureTarget.TEXTURE_2D_ARRAY, textureArray.getTexId());
+        } else {
+            for (int i = 0; i < MAX_TEXTURES; i++) {
+                if (texIds[i] != 0) {
+                    GLState.bindTexture(i + 1, TextureTarget.TEXTURE_2D, texIds[i]);
+                }
+            }
+        }
+
+        GLState.bindVertexArray(vaoID);
+        if (visibleArea == null || contains(visibleArea, batchBounds) || !canDrawRanges()) {
+            drawRange(0, count);
+        } else {
+            drawVisible(count, slotBounds, visibleArea);
+        }
+    }
+
+    /**
+     * Draws runs of visible sprites, merging runs separated by small gaps of culled sprites.
+     */
+    private void drawVisible(int count, float[] slotBounds, Vector4f visibleArea) {
+        int runStart = -1;
+        int runEnd = -1;
+        for (int i = 0; i < count; i++) {
+            int offset = i * 4;
+            boolean visible = slotBounds[offset] <= visibleArea.z && slotBounds[offset + 2] >= visibleArea.x
+                    && slotBounds[offset + 1] <= visibleArea.w && slotBounds[offset + 3] >= visibleArea.y;
+            if (!visible) {
+                continue;
+            }
+
+            if (runStart < 0) {
+                runStart = i;
+            } else if (i - runEnd > MAX_CULL_GAP + 1) {
+                drawRange(runStart, runEnd - runStart + 1);
+                runStart = i;
+            }
+            runEnd = i;
+        }
+        if (runStart >= 0) {
+            drawRange(runStart, runEnd - runStart + 1);
+        }
+        spritesCulled = count - spritesDrawn;
+    }
 
-            // Load Texture ID
-            vertices[offset + 8] = texID;
+    private void drawRange(int first, int count) {
+        if (count <= 0) {
+            return;
+        }
+        draw(first, count);
+        spritesDrawn += count;
+        drawCalls++;
+        GLState.countCalls(1);
+    }
 
-            offset += VERTEX_SIZE;
+    private void loadSprite(int i) {
+        loadVertexProperties(i);
+
+        // Scale may be negative for mirrored sprites
+        SpriteRenderer sprite = sprites[i];
+        Vector2fc position = sprite.getGameObject().getTransform().getPosition();
+        Vector2fc scale = sprite.getGameObject().getTransform().getScale();
+        int offset = i * 4;
+        spriteBounds[offset] = Math.min(position.x(), position.x() + scale.x());
+        spriteBounds[offset + 1] = Math.min(position.y(), position.y() + scale.y());
+        spriteBounds[offset + 2] = Math.max(position.x(), position.x() + scale.x());
+        spriteBounds[offset + 3] = Math.max(position.y(), position.y() + scale.y());
+        boundsDirty = true;
+    }
+
+    /**
+     * @return the world space bounds of all sprites in the batch as (minX, minY, maxX, maxY),
+     * only recomputed after sprites changed.
+     */
+    public Vector4f getBounds() {
+        if (boundsDirty) {
+            bounds.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+            for (int i = 0; i < numSprites; i++) {
+                int offset = i * 4;
+                bounds.x = Math.min(bounds.x, spriteBounds[offset]);
+                bounds.y = Math.min(bounds.y, spriteBounds[offset + 1]);
+                bounds.z = Math.max(bounds.z, spriteBounds[offset + 2]);
+                bounds.w = Math.max(bounds.w, spriteBounds[offset + 3]);
+            }
+            boundsDirty = false;
         }
+        return bounds;
     }
 
-    private int getTexID(SpriteRenderer sprite) {
+    private static boolean intersects(Vector4f a, Vector4f b) {
+        return a.x <= b.z && a.z >= b.x && a.y <= b.w && a.w >= b.y;
+    }
+
+    private static boolean contains(Vector4f outer, Vector4f inner) {
+        return inner.x >= outer.x && inner.z <= outer.z && inner.y >= outer.y && inner.w <= outer.w;
+    }
+
+    /**
+     * @param source native address of the range's vertices.
+     */
+    private void uploadRange(int firstSprite, int lastSprite, long source) {
+        int offset = firstSprite * spriteSize;
+        int length = (lastSprite - firstSprite + 1) * spriteSize;
+
+        long byteOffset = (long) offset * Float.BYTES;
+        long byteLength = (long) length * Float.BYTES;
+
+        // Upload straight from native memory, no intermediate copy
+        Graphics.backend().uploadBuffer(BufferTarget.VERTEX, vboID, byteOffset, source, byteLength);
+
+        bytesUploaded += byteLength;
+        uploadCalls++;
+        GLState.countCalls(2);
+    }
+
+    private void markPending(int index) {
+        pendingMin = Math.min(pendingMin, index);
+        pendingMax = Math.max(pendingMax, index);
+    }
+
+    protected int getTexID(SpriteRenderer sprite) {
+        if (textureArray != null && sprite.getTexture() != null) {
+            return textureArray.getLayer(sprite.getTexture()) + 1;
+        }
         if (sprite.getTexture() != null) {
             for (int j = 0; j < textures.size(); j++) {
                 if (textures.get(j) == sprite.getTexture()) {
@@ -227,55 +797,56 @@ public class RenderBatch implements Comparable<RenderBatch>{
         return 0;
     }
 
-    private void loadElementIndices(int[] elements, int i) {
-        int offsetArrayIndex = 6 * i;
-        int offset = 4 * i;
-
-        // Tri 1
-        elements[offsetArrayIndex] = offset + 3;
-        elements[offsetArrayIndex + 1] = offset + 2;
-        elements[offsetArrayIndex + 2] = offset;
-        // Tri 2
-        elements[offsetArrayIndex + 3] = offset;
-        elements[offsetArrayIndex + 4] = offset + 2;
-        elements[offsetArrayIndex + 5] = offset + 1;
-    }
-
     public boolean hasRoom() {
         return hasRoom;
     }
 
     public boolean hasTextureRoom() {
-        return textures.size() < 8;
+        return textureArray != null || textures.size() < MAX_TEXTURES || textures.contains(null);
+    }
+
+    public boolean isEmpty() {
+        return numSprites == 0;
     }
 
     public boolean hasTexture(Texture tex) {
-        return textures.contains(tex);
+        return textureArray != null ? textureArray.contains(tex) : textures.contains(tex);
     }
 
-    public int getzIndex() {
-        return zIndex;
+    public TextureArray getTextureArray() {
+        return textureArray;
     }
 
-    @Override
-    public int compareTo(RenderBatch o) {
-        return Integer.compare(this.zIndex, o.zIndex);
+    public int getBytesUploaded() {
+        return bytesUploaded;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        RenderBatch that = (RenderBatch) o;
-        return numSprites == that.numSprites && hasRoom == that.hasRoom && vaoID == that.vaoID && vboID == that.vboID && maxBatchSize == that.maxBatchSize && zIndex == that.zIndex && Arrays.equals(sprites, that.sprites) && Arrays.equals(vertices, that.vertices) && Objects.equals(textures, that.textures) && Arrays.equals(texSlots, that.texSlots) && Objects.equals(shader, that.shader);
+    public int getUploadCalls() {
+        return uploadCalls;
+    }
+
+    public int getSpritesDrawn() {
+        return spritesDrawn;
+    }
+
+    public int getSpritesCulled() {
+        return spritesCulled;
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public int getNumSprites() {
+        return numSprites;
+    }
+
+    public int getzIndex() {
+        return zIndex;
     }
 
     @Override
-    public int hashCode() {
-        int result = Objects.hash(numSprites, hasRoom, textures, vaoID, vboID, maxBatchSize, shader, zIndex);
-        result = 31 * result + Arrays.hashCode(sprites);
-        result = 31 * result + Arrays.hashCode(vertices);
-        result = 31 * result + Arrays.hashCode(texSlots);
-        return result;
+    public int compareTo(RenderBatch o) {
+        return Integer.compare(this.zIndex, o.zIndex);
     }
 }
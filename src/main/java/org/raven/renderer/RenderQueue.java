@@ -0,0 +1,137 @@
+package org.raven.renderer;
+
+import org.raven.objects.components.SpriteRenderer;
+
+import java.util.Arrays;
+
+/**
+ * The visible sprites of one frame, each with a 64 bit sort key, radix sorted so sprites that can be
+ * drawn together end up next to each other regardless of the order they were added in.
+ * Key layout from the most to the least significant bits:
+ * <pre>
+ * | layer (16) | shader (8) | texture (16) | depth (24) |
+ * </pre>
+ * The layer is the z-index, so layers still draw back to front. Depth is the submission order within
+ * the frame, which keeps the sort deterministic and doubles as index of the sprite.
+ * Keys are ordered as unsigned numbers.
+ */
+class RenderQueue {
+
+    static final int LAYER_BITS = 16;
+    static final int SHADER_BITS = 8;
+    static final int TEXTURE_BITS = 16;
+    static final int DEPTH_BITS = 24;
+
+    static final int MAX_SPRITES = 1 << DEPTH_BITS;
+
+    private static final int SHADER_SHIFT = TEXTURE_BITS + DEPTH_BITS;
+    private static final int LAYER_SHIFT = SHADER_BITS + SHADER_SHIFT;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+    // One byte per pass, eight passes for the whole key
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int PASSES = Long.SIZE / RADIX_BITS;
+
+    private long[] keys = new long[1024];
+    private long[] scratch = new long[1024];
+    // Indexed by depth, i.e. in submission order
+    private SpriteRenderer[] sprites = new SpriteRenderer[1024];
+    private int size;
+
+    private final int[] counts = new int[PASSES * RADIX];
+
+    void clear() {
+        // Drop references so removed sprites can be collected
+        Arrays.fill(sprites, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Submits a sprite behind all sprites submitted before it.
+     * @param layer z-index, clamped to the 16 bit range.
+     * @param shader small ID of the shader variant the sprite needs.
+     * @param texture ID of the texture or texture array, only its lowest 16 bits take part in sorting.
+     */
+    void add(SpriteRenderer sprite, int layer, int shader, int texture) {
+        if (size == MAX_SPRITES) {
+            throw new IllegalStateException("Render queue is limited to " + MAX_SPRITES + " sprites per frame.");
+        }
+        if (size == keys.length) {
+            int capacity = Math.min(size * 2, MAX_SPRITES);
+            keys = Arrays.copyOf(keys, capacity);
+            scratch = new long[capacity];
+            sprites = Arrays.copyOf(sprites, capacity);
+        }
+        keys[size] = key(layer, shader, texture, size);
+        sprites[size] = sprite;
+        size++;
+    }
+
+    static long key(int layer, int shader, int texture, int depth) {
+        // Bias the signed z-index so negative layers sort first, in long so huge z-indices do not wrap around
+        long biasedLayer = Math.max(0, Math.min((long) layer + (1 << (LAYER_BITS - 1)), (1 << LAYER_BITS) - 1));
+        return biasedLayer << LAYER_SHIFT
+                | (long) (shader & ((1 << SHADER_BITS) - 1)) << SHADER_SHIFT
+                | (long) (texture & ((1 << TEXTURE_BITS) - 1)) << DEPTH_BITS
+                | (depth & DEPTH_MASK);
+    }
+
+    /**
+     * Sorts the keys with a least significant digit radix sort, one byte per pass. Histograms of all
+     * bytes are counted in a single pass over the keys, and bytes equal in every key are skipped,
+     * which typically leaves the layer, texture and lowest depth bytes.
+     */
+    void sort() {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            for (int pass = 0; pass < PASSES; pass++) {
+                counts[pass * RADIX + (int) ((key >>> (pass * RADIX_BITS)) & (RADIX - 1))]++;
+            }
+        }
+
+        long[] source = keys;
+        long[] target = scratch;
+        for (int pass = 0; pass < PASSES; pass++) {
+            int base = pass * RADIX;
+            int shift = pass * RADIX_BITS;
+            if (counts[base + (int) ((source[0] >>> shift) & (RADIX - 1))] == size) {
+                continue;
+            }
+
+            // Counts to start offsets
+            int offset = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int count = counts[base + digit];
+                counts[base + digit] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < size; i++) {
+                long key = source[i];
+                target[counts[base + (int) ((key >>> shift) & (RADIX - 1))]++] = key;
+            }
+
+            long[] swap = source;
+            source = target;
+            target = swap;
+        }
+        keys = source;
+        scratch = target;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the sprite at a position of the sorted order.
+     */
+    SpriteRenderer get(int index) {
+        return sprites[(int) (keys[index] & DEPTH_MASK)];
+    }
+
+    long getKey(int index) {
+        return keys[index];
+    }
+}
@@ -0,0 +1,56 @@
+package org.raven.renderer;
+
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything the render thread needs to draw one frame, captured by the update thread.
+ * Snapshots are reused; batch snapshots keep their buffers between frames.
+ */
+class RenderSnapshot {
+
+    final List<RenderBatch> batches = new ArrayList<>();
+    private final List<RenderBatch.Snapshot> batchSnapshots = new ArrayList<>();
+
+    final Matrix4f projection = new Matrix4f();
+    final Matrix4f view = new Matrix4f();
+    boolean hasCamera;
+
+    final Vector4f visibleArea = new Vector4f();
+    boolean culled;
+    // Sprites the render queue culled before batching
+    int spritesCulled;
+
+    // CPU time the update thread spent on the frame, reported with the render thread's statistics
+    long prepareNanos;
+    long captureNanos;
+
+    // Batches removed since the previous snapshot, destroyed once this one is drawn
+    final List<RenderBatch> destroyed = new ArrayList<>();
+
+    void clear() {
+        batches.clear();
+        destroyed.clear();
+        hasCamera = false;
+        culled = false;
+        spritesCulled = 0;
+    }
+
+    /**
+     * Adds the batch to the snapshot and returns the batch snapshot to capture it in.
+     */
+    RenderBatch.Snapshot add(RenderBatch batch) {
+        if (batches.size() == batchSnapshots.size()) {
+            batchSnapshots.add(new RenderBatch.Snapshot());
+        }
+        batches.add(batch);
+        return batchSnapshots.get(batches.size() - 1);
+    }
+
+    RenderBatch.Snapshot get(int index) {
+        return batchSnapshots.get(index);
+    }
+}
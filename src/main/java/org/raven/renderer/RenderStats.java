@@ -0,0 +1,210 @@
+package org.raven.renderer;
+
+/**
+ * Counters and CPU phase timings of one rendered frame. The renderer fills a frame while drawing it
+ * and keeps the last finished one, see {@link Renderer#getStats()}; {@link RenderStatsLog} writes
+ * them out per frame.
+ */
+public class RenderStats {
+
+    // Column names of the CSV header and JSON keys, in the order of get(int)
+    static final String[] COLUMNS = {
+            "frame", "batches", "batchesDrawn", "batchesCulled", "spritesSubmitted", "spritesDrawn",
+            "spritesCulled", "drawCalls", "bytesUploaded", "uploadCalls", "textureBinds", "programSwitches",
+            "glCalls", "skippedGlCalls", "prepareNanos", "captureNanos", "submitNanos"
+    };
+
+    long frame;
+
+    int batchesDrawn;
+    int batchesCulled;
+    int spritesDrawn;
+    int spritesCulled;
+    int drawCalls;
+
+    long bytesUploaded;
+    int uploadCalls;
+
+    // Taken from the GL state tracker when the frame ends
+    int textureBinds;
+    int programSwitches;
+    int glCalls;
+    int skippedGlCalls;
+
+    // CPU time of writing vertices, copying them into a snapshot when pipelined, and issuing GL calls
+    long prepareNanos;
+    long captureNanos;
+    long submitNanos;
+
+    /**
+     * Clears all counters of the frame, keeping the frame number.
+     */
+    void reset() {
+        batchesDrawn = 0;
+        batchesCulled = 0;
+        spritesDrawn = 0;
+        spritesCulled = 0;
+        drawCalls = 0;
+        bytesUploaded = 0;
+        uploadCalls = 0;
+        textureBinds = 0;
+        programSwitches = 0;
+        glCalls = 0;
+        skippedGlCalls = 0;
+        prepareNanos = 0;
+        captureNanos = 0;
+        submitNanos = 0;
+    }
+
+    void add(RenderBatch batch) {
+        bytesUploaded += batch.getBytesUploaded();
+        uploadCalls += batch.getUploadCalls();
+        spritesDrawn += batch.getSpritesDrawn();
+        spritesCulled += batch.getSpritesCulled();
+        drawCalls += batch.getDrawCalls();
+        if (batch.getDrawCalls() > 0) {
+            batchesDrawn++;
+        } else {
+            batchesCulled++;
+        }
+    }
+
+    void set(RenderStats other) {
+        frame = other.frame;
+        batchesDrawn = other.batchesDrawn;
+        batchesCulled = other.batchesCulled;
+        spritesDrawn = other.spritesDrawn;
+        spritesCulled = other.spritesCulled;
+        drawCalls = other.drawCalls;
+        bytesUploaded = other.bytesUploaded;
+        uploadCalls = other.uploadCalls;
+        textureBinds = other.textureBinds;
+        programSwitches = other.programSwitches;
+        glCalls = other.glCalls;
+        skippedGlCalls = other.skippedGlCalls;
+        prepareNanos = other.prepareNanos;
+        captureNanos = other.captureNanos;
+        submitNanos = other.submitNanos;
+    }
+
+    long get(int column) {
+        return switch (column) {
+            case 0 -> frame;
+            case 1 -> getBatches();
+            case 2 -> batchesDrawn;
+            case 3 -> batchesCulled;
+            case 4 -> getSpritesSubmitted();
+            case 5 -> spritesDrawn;
+            case 6 -> spritesCulled;
+            case 7 -> drawCalls;
+            case 8 -> bytesUploaded;
+            case 9 -> uploadCalls;
+            case 10 -> textureBinds;
+            case 11 -> programSwitches;
+            case 12 -> glCalls;
+            case 13 -> skippedGlCalls;
+            case 14 -> prepareNanos;
+            case 15 -> captureNanos;
+            case 16 -> submitNanos;
+            default -> throw new IndexOutOfBoundsException(column);
+        };
+    }
+
+    /**
+     * Appends the frame as one CSV row matching {@link #csvHeader()}, without a line break.
+     */
+    public void appendCsv(StringBuilder out) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(get(i));
+        }
+    }
+
+    public static String csvHeader() {
+        return String.join(",", COLUMNS);
+    }
+
+    /**
+     * Appends the frame as a single line JSON object.
+     */
+    public void appendJson(StringBuilder out) {
+        out.append('{');
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(COLUMNS[i]).append("\":").append(get(i));
+        }
+        out.append('}');
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    public int getBatches() {
+        return batchesDrawn + batchesCulled;
+    }
+
+    public int getBatchesDrawn() {
+        return batchesDrawn;
+    }
+
+    public int getBatchesCulled() {
+        return batchesCulled;
+    }
+
+    public int getSpritesSubmitted() {
+        return spritesDrawn + spritesCulled;
+    }
+
+    public int getSpritesDrawn() {
+        return spritesDrawn;
+    }
+
+    public int getSpritesCulled() {
+        return spritesCulled;
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    public int getUploadCalls() {
+        return uploadCalls;
+    }
+
+    public int getTextureBinds() {
+        return textureBinds;
+    }
+
+    public int getProgramSwitches() {
+        return programSwitches;
+    }
+
+    public int getGlCalls() {
+        return glCalls;
+    }
+
+    public int getSkippedGlCalls() {
+        return skippedGlCalls;
+    }
+
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    public long getSubmitNanos() {
+        return submitNanos;
+    }
+}
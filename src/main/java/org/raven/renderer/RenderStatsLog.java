@@ -0,0 +1,63 @@
+package org.raven.renderer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the {@link RenderStats} of every frame to a file, one line per frame.
+ * CSV starts with a header row, JSON is written as JSON lines (one object per line), so frames
+ * are appended without keeping the whole log in memory.
+ */
+public class RenderStatsLog implements Closeable {
+
+    public enum Format {
+        CSV,
+        JSON;
+
+        /**
+         * @return JSON for files ending in .json or .jsonl, CSV otherwise.
+         */
+        public static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase();
+            return name.endsWith(".json") || name.endsWith(".jsonl") ? JSON : CSV;
+        }
+    }
+
+    private final Path path;
+    private final Format format;
+    private final BufferedWriter writer;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public RenderStatsLog(Path path, Format format) throws IOException {
+        this.path = path;
+        this.format = format;
+        this.writer = Files.newBufferedWriter(path);
+        if (format == Format.CSV) {
+            writer.write(RenderStats.csvHeader());
+            writer.newLine();
+        }
+    }
+
+    public void record(RenderStats stats) throws IOException {
+        line.setLength(0);
+        if (format == Format.CSV) {
+            stats.appendCsv(line);
+        } else {
+            stats.appendJson(line);
+        }
+        writer.append(line);
+        writer.newLine();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -1,19 +1,144 @@
 package org.raven.renderer;
 
+import org.joml.Matrix4f;
+import org.joml.Vector2fc;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryStack;
+import org.raven.Camera;
+import org.raven.Window;
 import org.raven.objects.GameObject;
 import org.raven.objects.components.SpriteRenderer;
+import org.raven.profiler.Profiler;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.BufferTarget;
+import org.raven.renderer.backend.RenderBackend.BufferUsage;
 
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.lwjgl.system.MemoryUtil.memAddress;
 
 public class Renderer {
 
+    private static final Logger LOGGER = Logger.getLogger(Renderer.class.getName());
+
+    /**
+     * How sprites are submitted to the GPU.
+     * QUADS expands every sprite into four vertices, PACKED_QUADS does the same with compact
+     * 20 byte vertices, INSTANCED uploads one record per sprite and expands it on the GPU (requires GL 3.3).
+     */
+    public enum BatchType {
+        QUADS,
+        PACKED_QUADS,
+        INSTANCED
+    }
+
+    /**
+     * Lookup state for the batches of one z-index, so placing a sprite does not scan every batch.
+     */
+    private static class BatchLayer {
+        // Batch new textures go to, replaced when it runs out of room
+        private RenderBatch openBatch;
+        // Last batch that received a texture or texture array, may be stale and is validated on lookup
+        private final Map<Texture, RenderBatch> textureBatches = new HashMap<>();
+        private final Map<TextureArray, RenderBatch> arrayBatches = new HashMap<>();
+    }
+
+    /**
+     * Batches the render queue refills every frame, reused between frames. One pool per texture
+     * array, and one for batches using texture slots.
+     */
+    private static class BatchPool {
+        private final List<RenderBatch> batches = new ArrayList<>();
+        // Batches handed out this frame
+        private int used;
+    }
+
     private static final int MAX_BATCH_SIZE = 1000;
+    // Indices of every quad batch, 16 bit as a batch has far fewer than 65536 vertices
+    private final QuadIndexBuffer quadIndices = new QuadIndexBuffer(MAX_BATCH_SIZE);
+    // Corners every instanced batch expands its sprites from
+    private final UnitQuadBuffer unitQuad = new UnitQuadBuffer();
+    // Per frame vertices of all STREAMING batches, grows when a frame needs more
+    private static final long STREAM_REGION_SIZE = 4 * 1024 * 1024;
+    private final StreamBuffer streamBuffer = new StreamBuffer(STREAM_REGION_SIZE);
+    // Guards the per frame regions of PERSISTENT batches
+    private final FrameFences frameFences = new FrameFences();
+    // Sorted by z-index, batches of equal z-index in creation order
     private List<RenderBatch> batchList;
+    private Map<SpriteRenderer, RenderBatch> spriteBatches;
+    private Map<Integer, BatchLayer> layers;
+    // Static sprites never share batches with dynamic ones
+    private Map<Integer, BatchLayer> staticLayers;
+    private final BatchType batchType;
+    private RenderBatch.StorageMode storageMode;
+
+    // Texture arrays keyed by packed texture dimensions, only used when enabled
+    private boolean useTextureArrays = false;
+    private Map<Long, TextureArray> textureArrays;
+
+    // Sprites drawn through the render queue in the order they were added, only used when enabled
+    private RenderQueue renderQueue;
+    private final Set<SpriteRenderer> queuedSprites = new LinkedHashSet<>();
+    private final Map<TextureArray, BatchPool> queuePools = new HashMap<>();
+    // Batches built from the sorted queue for the current frame
+    private final List<RenderBatch> queueBatches = new ArrayList<>();
+    private int queueCulled;
+
+    private boolean cullingEnabled = true;
+    // Vertex generation of different batches runs on the common fork join pool
+    private boolean parallelPrepare = Runtime.getRuntime().availableProcessors() > 1;
+    private final Vector4f visibleArea = new Vector4f();
+
+    // Uniform buffer of the shaders' camera block, projection followed by view matrix
+    private static final int CAMERA_BLOCK_FLOATS = 32;
+    private int cameraUbo;
+
+    // Frame snapshots passed from the update to the render thread, only used when pipelined
+    private BlockingQueue<RenderSnapshot> freeSnapshots;
+    private BlockingQueue<RenderSnapshot> readySnapshots;
+    private RenderSnapshot writeSnapshot;
+    private RenderSnapshot readSnapshot;
+    private final List<RenderBatch> destroyedBatches = new ArrayList<>();
+
+    // Statistics of the frame being drawn and of the last finished frame
+    private final RenderStats frameStats = new RenderStats();
+    private final RenderStats stats = new RenderStats();
+    private long frameCount;
+    private long submitStart;
+    private RenderStatsLog statsLog;
 
     public Renderer() {
+        this(BatchType.QUADS);
+    }
+
+    public Renderer(BatchType batchType) {
         this.batchList = new ArrayList<>();
+        this.spriteBatches = new HashMap<>();
+        this.layers = new HashMap<>();
+        this.staticLayers = new HashMap<>();
+        this.textureArrays = new HashMap<>();
+        this.batchType = batchType;
+    }
+
+    public Renderer(BatchType batchType, RenderBatch.StorageMode storageMode) {
+        this(batchType);
+        this.storageMode = storageMode;
     }
 
     public void add(GameObject go) {
@@ -24,30 +149,642 @@ public class Renderer {
     }
 
     private void add(SpriteRenderer spriteRenderer) {
-        boolean added = false;
-        for (RenderBatch batch : batchList) {
-            if (batch.hasRoom() && batch.getzIndex() == spriteRenderer.getGameObject().getzIndex()) {
-                Texture tex = spriteRenderer.getTexture();
-                if (tex == null || (batch.hasTexture(tex) || batch.hasTextureRoom())) {
-                    batch.addSprite(spriteRenderer);
-                    added = true;
-                    break;
-                }
+        Texture tex = spriteRenderer.getTexture();
+        TextureArray textureArray = getTextureArray(tex);
+        if (renderQueue != null) {
+            queuedSprites.add(spriteRenderer);
+            return;
+        }
+        int zIndex = spriteRenderer.getGameObject().getzIndex();
+        boolean isStatic = spriteRenderer.getGameObject().isStatic();
+        BatchLayer layer = (isStatic ? staticLayers : layers).computeIfAbsent(zIndex, z -> new BatchLayer());
+
+        RenderBatch batch = findBatch(layer, tex, textureArray);
+        if (batch == null) {
+            batch = createBatch(zIndex, textureArray, isStatic);
+            // Pipelined batches are started by the render thread when first drawn
+            if (!isPipelined()) {
+                batch.start();
+            }
+            insertBatch(batch);
+            if (textureArray == null) {
+                layer.openBatch = batch;
             }
         }
 
-        if (!added) {
-            RenderBatch newBatch = new RenderBatch(MAX_BATCH_SIZE, spriteRenderer.getGameObject().getzIndex());
-            newBatch.start();
-            batchList.add(newBatch);
-            newBatch.addSprite(spriteRenderer);
-            Collections.sort(batchList);
+        batch.addSprite(spriteRenderer);
+        spriteBatches.put(spriteRenderer, batch);
+        if (textureArray != null) {
+            layer.arrayBatches.put(textureArray, batch);
+        } else if (tex != null) {
+            layer.textureBatches.put(tex, batch);
         }
     }
 
+    /**
+     * @return a batch of the layer that can take a sprite with this texture, or null if a new batch is needed.
+     */
+    private RenderBatch findBatch(BatchLayer layer, Texture tex, TextureArray textureArray) {
+        if (textureArray != null) {
+            RenderBatch batch = layer.arrayBatches.get(textureArray);
+            return batch != null && batch.hasRoom() ? batch : null;
+        }
+
+        // Prefer a batch already holding the texture so it does not take up another slot
+        if (tex != null) {
+            RenderBatch batch = layer.textureBatches.get(tex);
+            if (batch != null && batch.hasRoom() && batch.hasTexture(tex)) {
+                return batch;
+            }
+        }
+
+        RenderBatch batch = layer.openBatch;
+        if (batch != null && batch.hasRoom() && (tex == null || batch.hasTextureRoom())) {
+            return batch;
+        }
+        return null;
+    }
+
+    /**
+     * Inserts the batch behind all batches with a lower or equal z-index.
+     */
+    private void insertBatch(RenderBatch batch) {
+        int low = 0;
+        int high = batchList.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (batchList.get(mid).getzIndex() <= batch.getzIndex()) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        batchList.add(low, batch);
+    }
+
+    private RenderBatch createBatch(int zIndex, TextureArray textureArray, boolean isStatic) {
+        // Resolved lazily as the driver capabilities are only known once a GL context exists
+        if (storageMode == null) {
+            storageMode = RenderBatch.StorageMode.preferred();
+        }
+
+        // Static batches are uploaded once into GL_STATIC_DRAW buffers, which mapped storage has no use for
+        RenderBatch.StorageMode mode = isStatic ? RenderBatch.StorageMode.DIRECT : storageMode;
+        // Instances in the stream buffer or a frame region are found through the base instance
+        if (mode != RenderBatch.StorageMode.DIRECT && batchType == BatchType.INSTANCED
+                && !Graphics.backend().supportsBaseInstance()) {
+            mode = RenderBatch.StorageMode.DIRECT;
+        }
+        RenderBatch batch = switch (batchType) {
+            case QUADS -> new QuadRenderBatch(MAX_BATCH_SIZE, zIndex, mode, textureArray);
+            case PACKED_QUADS -> new PackedQuadRenderBatch(MAX_BATCH_SIZE, zIndex, mode, textureArray);
+            case INSTANCED -> new InstancedRenderBatch(MAX_BATCH_SIZE, zIndex, mode, textureArray);
+        };
+        if (batch instanceof QuadRenderBatch quadBatch) {
+            quadBatch.setIndexBuffer(quadIndices);
+        } else if (batch instanceof InstancedRenderBatch instancedBatch) {
+            instancedBatch.setUnitQuad(unitQuad);
+        }
+        batch.setStreamBuffer(streamBuffer);
+        batch.setStatic(isStatic);
+        return batch;
+    }
+
+    /**
+     * Finds or creates the texture array for textures of this size and adds the texture as a layer.
+     * @return null when texture arrays are disabled, the array is full, the texture is still loading or
+     * keeps changing like atlas pages, in which case the texture falls back to regular texture slots.
+     */
+    private TextureArray getTextureArray(Texture tex) {
+        // Texture arrays copy layers on the GL thread while adding sprites, which the pipeline cannot do
+        if (!useTextureArrays || tex == null || !tex.isLoaded() || tex.isMutable() || isPipelined()) {
+            return null;
+        }
+
+        TextureArray textureArray = textureArrays.computeIfAbsent(textureArrayKey(tex),
+                k -> new TextureArray(tex.getWidth(), tex.getHeight()));
+        return textureArray.addLayer(tex) < 0 ? null : textureArray;
+    }
+
+    private static long textureArrayKey(Texture tex) {
+        return ((long) tex.getWidth() << 32) | tex.getHeight();
+    }
+
+    public void remove(GameObject go) {
+        SpriteRenderer spriteRenderer = go.getComponent(SpriteRenderer.class);
+        if (spriteRenderer != null) {
+            remove(spriteRenderer);
+        }
+    }
+
+    private void remove(SpriteRenderer spriteRenderer) {
+        if (renderQueue != null) {
+            queuedSprites.remove(spriteRenderer);
+            return;
+        }
+
+        RenderBatch batch = spriteBatches.remove(spriteRenderer);
+        if (batch == null || !batch.removeSprite(spriteRenderer)) {
+            return;
+        }
+
+        BatchLayer layer = (batch.isStatic() ? staticLayers : layers).get(batch.getzIndex());
+
+        // Release batches nobody draws from anymore instead of keeping their GPU buffers around
+        if (batch.isEmpty()) {
+            // Snapshots still in flight may draw the batch, so the render thread destroys it later
+            if (isPipelined()) {
+                destroyedBatches.add(batch);
+            } else {
+                batch.destroy();
+            }
+            batchList.removeIf(b -> b == batch);
+            if (layer.openBatch == batch) {
+                layer.openBatch = null;
+            }
+            layer.textureBatches.values().removeIf(b -> b == batch);
+            layer.arrayBatches.values().removeIf(b -> b == batch);
+            return;
+        }
+
+        // Fill up freed space before opening new batches
+        if (batch.getTextureArray() == null && (layer.openBatch == null || !layer.openBatch.hasRoom())) {
+            layer.openBatch = batch;
+        }
+    }
+
+    /**
+     * Rebuilds the vertices of a static game object after it was changed.
+     */
+    public void invalidate(GameObject go) {
+        SpriteRenderer spriteRenderer = go.getComponent(SpriteRenderer.class);
+        RenderBatch batch = spriteRenderer != null ? spriteBatches.get(spriteRenderer) : null;
+        if (batch != null) {
+            spriteRenderer.markDirty();
+            batch.invalidate();
+        }
+    }
+
+    /**
+     * Uploads and draws all batches. When pipelined, prepares the batches and captures them into
+     * the snapshot acquired with {@link #beginSnapshot()} instead, making no GL calls.
+     */
     public void render() {
-        for (RenderBatch batch : batchList) {
-            batch.render();
+        render(Window.get().getSceneManager().getCurrentScene().getCamera());
+    }
+
+    /**
+     * Like {@link #render()}, but seen through the given camera instead of the current scene's,
+     * e.g. to render without a window.
+     */
+    public void render(Camera camera) {
+        // The visible area is computed once per frame and shared by all batches
+        Vector4f area = null;
+        if (cullingEnabled && camera != null) {
+            area = camera.getVisibleArea(visibleArea);
+        }
+
+        Profiler.begin("render");
+        long prepareStart = System.nanoTime();
+        if (renderQueue != null) {
+            buildQueueBatches(area);
+            // Sprites were culled one by one while filling the queue
+            area = null;
+        }
+        prepareBatches();
+        long prepareNanos = System.nanoTime() - prepareStart;
+        if (isPipelined()) {
+            Profiler.begin("capture");
+            captureSnapshot(camera, area);
+            Profiler.end();
+            writeSnapshot.prepareNanos = prepareNanos;
+            writeSnapshot.captureNanos = System.nanoTime() - prepareStart - prepareNanos;
+            Profiler.end();
+            return;
+        }
+
+        Profiler.beginGpu("submit");
+        beginFrame();
+        frameStats.prepareNanos = prepareNanos;
+        frameStats.spritesCulled = queueCulled;
+        if (camera != null) {
+            uploadCamera(camera.getProjectionMatrix(), camera.getViewMatrix());
+        }
+        for (RenderBatch batch : getFrameBatches()) {
+            Profiler.begin("RenderBatch.submit");
+            batch.submit(area);
+            Profiler.end();
+            frameStats.add(batch);
+        }
+        endFrame();
+        Profiler.endGpu();
+        Profiler.end();
+    }
+
+    private void prepareBatches() {
+        Profiler.begin("prepare");
+        // Vertices are written on worker threads, GL calls stay on the calling thread
+        List<RenderBatch> batches = getFrameBatches();
+        if (parallelPrepare && batches.size() > 1) {
+            batches.parallelStream().forEach(Renderer::prepareBatch);
+        } else {
+            for (RenderBatch batch : batches) {
+                prepareBatch(batch);
+            }
+        }
+        Profiler.end();
+    }
+
+    private List<RenderBatch> getFrameBatches() {
+        return renderQueue != null ? queueBatches : batchList;
+    }
+
+    /**
+     * Submits every visible sprite to the render queue, sorts it and distributes the sorted sprites
+     * over pooled batches. A new batch only starts when the shader variant changes or the current
+     * one runs out of sprite or texture room; layers share batches, as slot order is draw order.
+     */
+    private void buildQueueBatches(Vector4f area) {
+        Profiler.begin("queue");
+        renderQueue.clear();
+        queueCulled = 0;
+        for (SpriteRenderer spr : queuedSprites) {
+            if (area != null && !isVisible(spr, area)) {
+                queueCulled++;
+                continue;
+            }
+            Texture tex = spr.getTexture();
+            TextureArray textureArray = findTextureArray(tex);
+            int shader = textureArray == null ? 0 : 1;
+            int texture = textureArray != null ? textureArray.getTexId() : tex != null ? tex.getTexId() : 0;
+            renderQueue.add(spr, spr.getGameObject().getzIndex(), shader, texture);
+        }
+        renderQueue.sort();
+
+        for (BatchPool pool : queuePools.values()) {
+            pool.used = 0;
+        }
+        queueBatches.clear();
+        RenderBatch batch = null;
+        TextureArray batchArray = null;
+        for (int i = 0; i < renderQueue.size(); i++) {
+            SpriteRenderer spr = renderQueue.get(i);
+            Texture tex = spr.getTexture();
+            TextureArray textureArray = findTextureArray(tex);
+            boolean fits = batch != null && textureArray == batchArray && batch.hasRoom()
+                    && (tex == null || textureArray != null || batch.hasTexture(tex) || batch.hasTextureRoom());
+            if (!fits) {
+                batch = nextQueueBatch(textureArray);
+                batchArray = textureArray;
+            }
+            batch.appendSprite(spr);
+        }
+        Profiler.end();
+    }
+
+    private RenderBatch nextQueueBatch(TextureArray textureArray) {
+        BatchPool pool = queuePools.computeIfAbsent(textureArray, k -> new BatchPool());
+        RenderBatch batch;
+        if (pool.used < pool.batches.size()) {
+            batch = pool.batches.get(pool.used);
+        } else {
+            batch = createBatch(0, textureArray, false);
+            // Pipelined batches are started by the render thread when first drawn
+            if (!isPipelined()) {
+                batch.start();
+            }
+            pool.batches.add(batch);
+        }
+        pool.used++;
+        batch.clear();
+        queueBatches.add(batch);
+        return batch;
+    }
+
+    /**
+     * @return the texture array holding the texture as a layer, or null to use texture slots.
+     */
+    private TextureArray findTextureArray(Texture tex) {
+        if (tex == null || textureArrays.isEmpty()) {
+            return null;
+        }
+        TextureArray textureArray = textureArrays.get(textureArrayKey(tex));
+        return textureArray != null && textureArray.contains(tex) ? textureArray : null;
+    }
+
+    private static boolean isVisible(SpriteRenderer spr, Vector4f area) {
+        // Scale may be negative for mirrored sprites
+        Vector2fc position = spr.getGameObject().getTransform().getPosition();
+        Vector2fc scale = spr.getGameObject().getTransform().getScale();
+        return Math.min(position.x(), position.x() + scale.x()) <= area.z
+                && Math.max(position.x(), position.x() + scale.x()) >= area.x
+                && Math.min(position.y(), position.y() + scale.y()) <= area.w
+                && Math.max(position.y(), position.y() + scale.y()) >= area.y;
+    }
+
+    private static void prepareBatch(RenderBatch batch) {
+        Profiler.begin("RenderBatch.prepare");
+        batch.prepare();
+        Profiler.end();
+    }
+
+    private void beginFrame() {
+        frameStats.reset();
+        GLState.beginFrame();
+        submitStart = System.nanoTime();
+        streamBuffer.beginFrame();
+        if (storageMode == RenderBatch.StorageMode.PERSISTENT) {
+            frameFences.beginFrame();
+        }
+    }
+
+    private void endFrame() {
+        // Leave no batch state bound for whatever renders next
+        GLState.bindVertexArray(0);
+        GLState.useProgram(0);
+        streamBuffer.endFrame();
+        if (storageMode == RenderBatch.StorageMode.PERSISTENT) {
+            frameFences.endFrame();
+        }
+        frameStats.submitNanos = System.nanoTime() - submitStart;
+        frameStats.glCalls = GLState.getCalls();
+        frameStats.skippedGlCalls = GLState.getSkippedCalls();
+        frameStats.textureBinds = GLState.getTextureBinds();
+        frameStats.programSwitches = GLState.getProgramSwitches();
+        frameStats.frame = ++frameCount;
+        stats.set(frameStats);
+
+        if (statsLog != null) {
+            try {
+                statsLog.record(stats);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Could not write render statistics, logging stopped.", e);
+                stopStatsLog();
+            }
+        }
+    }
+
+    /**
+     * Lets {@link #render()} capture frame snapshots for a separate render thread instead of drawing.
+     * Must be called before sprites are added; batches then use DIRECT storage and texture arrays are
+     * disabled, as both would require GL calls on the update thread.
+     * @param snapshotCount 2 for double buffering, 3 to let the update thread run up to two frames ahead.
+     */
+    public void enablePipelining(int snapshotCount) {
+        if (!batchList.isEmpty() || !queuedSprites.isEmpty()) {
+            throw new IllegalStateException("Pipelining must be enabled before sprites are added.");
+        }
+        if (snapshotCount < 2) {
+            throw new IllegalArgumentException("Pipelining requires at least two snapshots.");
+        }
+
+        storageMode = RenderBatch.StorageMode.DIRECT;
+        freeSnapshots = new ArrayBlockingQueue<>(snapshotCount);
+        readySnapshots = new ArrayBlockingQueue<>(snapshotCount);
+        for (int i = 0; i < snapshotCount; i++) {
+            freeSnapshots.add(new RenderSnapshot());
+        }
+    }
+
+    public boolean isPipelined() {
+        return freeSnapshots != null;
+    }
+
+    /**
+     * Update thread: waits until a snapshot is free to capture the next frame into.
+     * Must not be called while holding locks the render thread needs.
+     */
+    public void beginSnapshot() throws InterruptedException {
+        writeSnapshot = freeSnapshots.take();
+        writeSnapshot.clear();
+    }
+
+    private void captureSnapshot(Camera camera, Vector4f area) {
+        if (writeSnapshot == null) {
+            throw new IllegalStateException("No snapshot to render into, call beginSnapshot first.");
+        }
+
+        for (RenderBatch batch : getFrameBatches()) {
+            batch.capture(writeSnapshot.add(batch));
+        }
+        writeSnapshot.spritesCulled = queueCulled;
+        if (camera != null) {
+            writeSnapshot.projection.set(camera.getProjectionMatrix());
+            writeSnapshot.view.set(camera.getViewMatrix());
+            writeSnapshot.hasCamera = true;
+        }
+        if (area != null) {
+            writeSnapshot.visibleArea.set(area);
+            writeSnapshot.culled = true;
+        }
+        writeSnapshot.destroyed.addAll(destroyedBatches);
+        destroyedBatches.clear();
+    }
+
+    /**
+     * Update thread: hands the captured frame to the render thread.
+     */
+    public void publishSnapshot() {
+        // Never blocks, there are no more snapshots than queue capacity
+        readySnapshots.add(writeSnapshot);
+        writeSnapshot = null;
+    }
+
+    /**
+     * Render thread: waits for the next captured frame.
+     * @return false if no frame was captured within the timeout.
+     */
+    public boolean awaitSnapshot(long timeout, TimeUnit unit) throws InterruptedException {
+        readSnapshot = readySnapshots.poll(timeout, unit);
+        return readSnapshot != null;
+    }
+
+    /**
+     * Render thread: uploads and draws the frame received with {@link #awaitSnapshot()} and
+     * returns its snapshot to the update thread.
+     */
+    public void renderSnapshot() {
+        RenderSnapshot snapshot = readSnapshot;
+        Profiler.beginGpu("render");
+        beginFrame();
+        frameStats.prepareNanos = snapshot.prepareNanos;
+        frameStats.captureNanos = snapshot.captureNanos;
+        frameStats.spritesCulled = snapshot.spritesCulled;
+        if (snapshot.hasCamera) {
+            uploadCamera(snapshot.projection, snapshot.view);
+        }
+        Vector4f area = snapshot.culled ? snapshot.visibleArea : null;
+        for (int i = 0; i < snapshot.batches.size(); i++) {
+            RenderBatch batch = snapshot.batches.get(i);
+            Profiler.begin("RenderBatch.submit");
+            batch.submit(snapshot.get(i), area);
+            Profiler.end();
+            frameStats.add(batch);
+        }
+        for (RenderBatch batch : snapshot.destroyed) {
+            batch.destroy();
         }
+        endFrame();
+        Profiler.endGpu();
+
+        readSnapshot = null;
+        freeSnapshots.add(snapshot);
+    }
+
+    /**
+     * Uploads the camera matrices once for all batches and binds them to the camera block binding point.
+     */
+    private void uploadCamera(Matrix4f projection, Matrix4f view) {
+        RenderBackend backend = Graphics.backend();
+        long bytes = (long) CAMERA_BLOCK_FLOATS * Float.BYTES;
+        if (cameraUbo == 0) {
+            cameraUbo = backend.createBuffer(BufferTarget.UNIFORM, bytes, BufferUsage.DYNAMIC);
+        }
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            // std140 lays out a mat4 as four vec4 columns, matching JOML's column major order
+            FloatBuffer matrices = stack.mallocFloat(CAMERA_BLOCK_FLOATS);
+            projection.get(0, matrices);
+            view.get(16, matrices);
+            backend.uploadBuffer(BufferTarget.UNIFORM, cameraUbo, 0, memAddress(matrices), bytes);
+        }
+        backend.bindBufferBase(BufferTarget.UNIFORM, Shader.CAMERA_BINDING, cameraUbo);
+        GLState.countCalls(3);
+    }
+
+    /**
+     * @return the statistics of the last finished frame, updated in place every frame.
+     */
+    public RenderStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Writes the statistics of every following frame to the file, replacing a running log.
+     * @param path CSV, or JSON lines if the file name ends in .json or .jsonl.
+     */
+    public void startStatsLog(Path path) throws IOException {
+        stopStatsLog();
+        statsLog = new RenderStatsLog(path, RenderStatsLog.Format.of(path));
+        LOGGER.log(Level.INFO, "Logging render statistics to {0}", path);
+    }
+
+    public void stopStatsLog() {
+        if (statsLog == null) {
+            return;
+        }
+        try {
+            statsLog.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not close render statistics log.", e);
+        }
+        statsLog = null;
+    }
+
+    public boolean isLoggingStats() {
+        return statsLog != null;
+    }
+
+    /**
+     * @return the file statistics are logged to, or null if they are not logged.
+     */
+    public Path getStatsLogPath() {
+        return statsLog != null ? statsLog.getPath() : null;
+    }
+
+    /**
+     * Deletes every batch and the buffers they share, and stops logging statistics. The renderer cannot
+     * be used afterwards. Must be called on the thread owning the GL context, after the last snapshot was drawn.
+     */
+    public void destroy() {
+        Set<RenderBatch> batches = Collections.newSetFromMap(new IdentityHashMap<>());
+        batches.addAll(batchList);
+        batches.addAll(destroyedBatches);
+        for (BatchPool pool : queuePools.values()) {
+            batches.addAll(pool.batches);
+        }
+        if (freeSnapshots != null) {
+            for (RenderSnapshot snapshot : readySnapshots) {
+                batches.addAll(snapshot.destroyed);
+            }
+            if (writeSnapshot != null) {
+                batches.addAll(writeSnapshot.destroyed);
+            }
+        }
+        for (RenderBatch batch : batches) {
+            batch.destroy();
+        }
+        batchList.clear();
+        destroyedBatches.clear();
+        queuePools.clear();
+        queueBatches.clear();
+
+        quadIndices.destroy();
+        unitQuad.destroy();
+        streamBuffer.destroy();
+        frameFences.destroy();
+        if (cameraUbo != 0) {
+            Graphics.backend().deleteBuffer(cameraUbo);
+            cameraUbo = 0;
+        }
+        stopStatsLog();
+    }
+
+    public void setCullingEnabled(boolean cullingEnabled) {
+        this.cullingEnabled = cullingEnabled;
+    }
+
+    /**
+     * Writes the vertices of separate batches in parallel. Sprites of one batch are always
+     * handled by a single thread; the GL submission stays on the calling thread.
+     */
+    public void setParallelPrepare(boolean parallelPrepare) {
+        this.parallelPrepare = parallelPrepare;
+    }
+
+    /**
+     * Draws through a per frame render queue instead of long lived batches: every visible sprite gets a
+     * sort key of z-index, shader, texture and submission order, and batches are rebuilt from the sorted
+     * sprites each frame. Needs the fewest state changes and draw calls however sprites were added,
+     * at the cost of writing all visible vertices every frame. Sprites of one z-index are grouped by
+     * texture, so sprites that have to overlap in a fixed order need different z-indices.
+     * Must be called before sprites are added; static sprites are queued like all others.
+     */
+    public void setUseRenderQueue(boolean useRenderQueue) {
+        if (!batchList.isEmpty() || !queuedSprites.isEmpty()) {
+            throw new IllegalStateException("The render queue must be chosen before sprites are added.");
+        }
+        renderQueue = useRenderQueue ? new RenderQueue() : null;
+    }
+
+    /**
+     * Chooses where dynamic batches keep their vertices, e.g. STREAMING for scenes where nearly every
+     * sprite moves every frame. Defaults to {@link RenderBatch.StorageMode#preferred()}.
+     * Must be called before sprites are added.
+     */
+    public void setStorageMode(RenderBatch.StorageMode storageMode) {
+        if (!batchList.isEmpty() || !queuedSprites.isEmpty()) {
+            throw new IllegalStateException("The storage mode must be chosen before sprites are added.");
+        }
+        if (isPipelined() && storageMode != RenderBatch.StorageMode.DIRECT) {
+            throw new IllegalStateException("Pipelined rendering requires DIRECT storage.");
+        }
+        this.storageMode = storageMode;
+    }
+
+    public boolean isUsingRenderQueue() {
+        return renderQueue != null;
+    }
+
+    public BatchType getBatchType() {
+        return batchType;
+    }
+
+    /**
+     * Places textures of equal size in shared GL_TEXTURE_2D_ARRAY layers instead of per batch
+     * texture slots. Only affects sprites added after the call.
+     */
+    public void setUseTextureArrays(boolean useTextureArrays) {
+        this.useTextureArrays = useTextureArrays;
     }
 }
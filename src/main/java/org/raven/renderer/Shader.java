@@ -1,41 +1,48 @@
 package org.raven.renderer;
 
 import org.joml.*;
-import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryStack;
+import org.raven.renderer.backend.Graphics;
 
 import java.io.IOException;
-import java.nio.FloatBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static org.lwjgl.opengl.GL11.GL_FALSE;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL20.glGetShaderInfoLog;
-
 public class Shader {
 
     private static final Logger LOGGER = Logger.getLogger(Shader.class.getName());
 
+    // Uniform block holding the camera matrices, filled once per frame by the renderer
+    public static final String CAMERA_BLOCK = "Camera";
+    public static final int CAMERA_BINDING = 0;
+
     private String vertexSource;
     private String fragmentSource;
     private final String filepath;
+    private final String[] defines;
 
     private int shaderProgramID;
-    private boolean beingUsed = false;
+    private final Map<String, Integer> uniformLocations = new HashMap<>();
 
-    public Shader(String filepath) {
+    /**
+     * @param defines preprocessor symbols defined in both stages, used to select variants of a shader file.
+     */
+    public Shader(String filepath, String... defines) {
         this.filepath = filepath;
+        this.defines = defines;
         try {
             String source = new String(Files.readAllBytes(Paths.get(filepath)));
             String[] splitString = source.split("(#type)( )+([a-zA-Z]+)");
 
             // Find Shader Patterns from source string.
-            // '#type <patternName>\r\n'
+            // '#type <patternName>\r\n' or '#type <patternName>\n'
             int keyOffset = 6;
             int index = source.indexOf("#type") + keyOffset;
-            int eol = source.indexOf("\r\n", index);
+            int eol = source.indexOf("\n", index);
             int secondIndex = source.indexOf("#type", eol) + keyOffset;
 
             String firstPattern = retrievePattern(source, index);
@@ -54,127 +61,140 @@ public class Shader {
     }
 
     public void compileAndLink() {
-
-        // Setup vertex shaders
-        int vertexID = glCreateShader(GL_VERTEX_SHADER); // Load and compile shader
-        glShaderSource(vertexID, vertexSource); // Link shader source to vertex shader
-        glCompileShader(vertexID); // Compile the shader
-
-        // Error check vertex shaders
-        int success = glGetShaderi(vertexID, GL_COMPILE_STATUS);
-        if (success == GL_FALSE) {
-            int len = glGetShaderi(vertexID, GL_INFO_LOG_LENGTH);
-            LOGGER.log(Level.SEVERE, "{0} | Vertex shader compilation failed.", this.filepath);
-            LOGGER.log(Level.SEVERE, "{0}", glGetShaderInfoLog(vertexID, len));
+        try {
+            shaderProgramID = Graphics.backend().createProgram(vertexSource, fragmentSource);
+        } catch (IllegalStateException e) {
+            LOGGER.log(Level.SEVERE, "{0} | Compiling or linking shaders failed.", this.filepath);
+            LOGGER.log(Level.SEVERE, "{0}", e.getMessage());
             assert false : "";
+            return;
         }
 
-        // Compile Fragment Shaders
-        int fragmentID = glCreateShader(GL_FRAGMENT_SHADER); // Load and compile shader
-        glShaderSource(fragmentID, fragmentSource); // Link shader source to fragment shader
-        glCompileShader(fragmentID); // Compile the shader
-
-        // Error check fragment shaders
-        success = glGetShaderi(fragmentID, GL_COMPILE_STATUS);
-        if (success == GL_FALSE) {
-            int len = glGetShaderi(fragmentID, GL_INFO_LOG_LENGTH);
-            LOGGER.log(Level.SEVERE, "{0} | Fragment shader compilation failed.", this.filepath);
-            LOGGER.log(Level.SEVERE, "{0}", glGetShaderInfoLog(fragmentID, len));
-            assert false : "";
-        }
+        // GLSL 330 cannot declare block bindings in the shader itself
+        Graphics.backend().bindUniformBlock(shaderProgramID, CAMERA_BLOCK, CAMERA_BINDING);
 
-        // Link up vertex shaders with fragment shaders
-        shaderProgramID = glCreateProgram();
-        glAttachShader(shaderProgramID, vertexID);
-        glAttachShader(shaderProgramID, fragmentID);
-        glLinkProgram(shaderProgramID);
-
-        // Check for linking errors
-        success = glGetProgrami(shaderProgramID, GL_LINK_STATUS);
-        if (success == GL_FALSE) {
-            int len = glGetProgrami(shaderProgramID, GL_INFO_LOG_LENGTH);
-            LOGGER.log(Level.SEVERE, "{0} | Linking shaders failed.", this.filepath);
-            LOGGER.log(Level.SEVERE, "{0}", glGetProgramInfoLog(shaderProgramID, len));
-            assert false : "";
-        }
+        // Queried once, so uploads never ask the driver by name
+        uniformLocations.clear();
+        uniformLocations.putAll(Graphics.backend().getUniformLocations(shaderProgramID));
     }
 
     public void use() {
-        // Bind shader program
-        if(!beingUsed) {
-            glUseProgram(shaderProgramID);
-            beingUsed = true;
-        }
+        // Bind shader program, skipped when it already is
+        GLState.useProgram(shaderProgramID);
     }
 
     public void detach() {
-        glUseProgram(0);
-        beingUsed = false;
+        GLState.useProgram(0);
+    }
+
+    /**
+     * @return the location of an active uniform, usable with the location based upload methods,
+     * or -1 if the shader has no such uniform. Arrays are found by their name without index.
+     */
+    public int getUniformLocation(String varName) {
+        return uniformLocations.getOrDefault(varName, -1);
     }
 
     public void uploadMat4f(String varName, Matrix4f mat4) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        uploadMat4f(getUniformLocation(varName), mat4);
+    }
+
+    public void uploadMat4f(int location, Matrix4f mat4) {
         use();
-        FloatBuffer matBuffer = BufferUtils.createFloatBuffer(16);
-        mat4.get(matBuffer);
-        glUniformMatrix4fv(varLocation, false, matBuffer);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            Graphics.backend().uniformMatrix4(location, mat4.get(stack.mallocFloat(16)));
+        }
     }
 
     public void uploadMat3f(String varName, Matrix3f mat3) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        uploadMat3f(getUniformLocation(varName), mat3);
+    }
+
+    public void uploadMat3f(int location, Matrix3f mat3) {
         use();
-        FloatBuffer matBuffer = BufferUtils.createFloatBuffer(9);
-        mat3.get(matBuffer);
-        glUniformMatrix3fv(varLocation, false, matBuffer);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            Graphics.backend().uniformMatrix3(location, mat3.get(stack.mallocFloat(9)));
+        }
     }
 
     public void uploadVec4f(String varName, Vector4f vector4f) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        uploadVec4f(getUniformLocation(varName), vector4f);
+    }
+
+    public void uploadVec4f(int location, Vector4f vector4f) {
         use();
-        glUniform4f(varLocation, vector4f.x, vector4f.y, vector4f.z, vector4f.w);
+        Graphics.backend().uniform(location, vector4f.x, vector4f.y, vector4f.z, vector4f.w);
+    }
+
+    public void uploadVec3f(String varName, Vector3f vector3f) {
+        uploadVec3f(getUniformLocation(varName), vector3f);
     }
 
-    public void uploadVec3f(String varName, Vector3f vector4f) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+    public void uploadVec3f(int location, Vector3f vector3f) {
         use();
-        glUniform3f(varLocation, vector4f.x, vector4f.y, vector4f.z);
+        Graphics.backend().uniform(location, vector3f.x, vector3f.y, vector3f.z);
+    }
+
+    public void uploadVec2f(String varName, Vector2f vector2f) {
+        uploadVec2f(getUniformLocation(varName), vector2f);
     }
 
-    public void uploadVec2f(String varName, Vector2f vector4f) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+    public void uploadVec2f(int location, Vector2f vector2f) {
         use();
-        glUniform2f(varLocation, vector4f.x, vector4f.y);
+        Graphics.backend().uniform(location, vector2f.x, vector2f.y);
     }
 
-    public void uploadFloat(String varName, float val){
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+    public void uploadFloat(String varName, float val) {
+        uploadFloat(getUniformLocation(varName), val);
+    }
+
+    public void uploadFloat(int location, float val) {
         use();
-        glUniform1f(varLocation, val);
+        Graphics.backend().uniform(location, val);
+    }
+
+    public void uploadInt(String varName, int val) {
+        uploadInt(getUniformLocation(varName), val);
     }
 
-    public void uploadInt(String varName, int val){
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+    public void uploadInt(int location, int val) {
         use();
-        glUniform1i(varLocation, val);
+        Graphics.backend().uniform(location, val);
     }
 
     public void uploadTexture(String varName, int slot) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
-        use();
-        glUniform1i(varLocation, slot);
+        uploadInt(getUniformLocation(varName), slot);
     }
 
     public void uploadIntArray(String varName, int[] array) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        uploadIntArray(getUniformLocation(varName), array);
+    }
+
+    public void uploadIntArray(int location, int[] array) {
         use();
-        glUniform1iv(varLocation, array);
+        Graphics.backend().uniform(location, array);
     }
 
     private String retrievePattern(String source, int index) {
-        int eol = source.indexOf("\r\n", index);
+        int eol = source.indexOf("\n", index);
         return source.substring(index, eol).trim();
     }
 
+    private String injectDefines(String source) {
+        if (defines.length == 0) {
+            return source;
+        }
+
+        // Defines have to follow the #version directive
+        int versionIndex = source.indexOf("#version");
+        int insertIndex = versionIndex < 0 ? 0 : source.indexOf("\n", versionIndex) + 1;
+        StringBuilder builder = new StringBuilder(source.substring(0, insertIndex));
+        for (String define : defines) {
+            builder.append("#define ").append(define).append('\n');
+        }
+        return builder.append(source.substring(insertIndex)).toString();
+    }
+
     private void assertPattern(String pattern, String[] fileContents, int contentIndex) throws IOException {
         switch (pattern) {
             case "vertex" -> assignVertexSource(fileContents[contentIndex]);
@@ -184,10 +204,10 @@ public class Shader {
     }
 
     private void assignFragmentSource(String source) {
-        fragmentSource = source;
+        fragmentSource = injectDefines(source);
     }
 
     private void assignVertexSource(String source) {
-        vertexSource = source;
+        vertexSource = injectDefines(source);
     }
 }
@@ -0,0 +1,125 @@
+package org.raven.renderer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bottom-left skyline rectangle packer. The skyline is the top outline of everything packed
+ * so far; new rectangles are placed where they end up lowest, which keeps the waste below
+ * the outline small for rectangles packed in order of decreasing height.
+ */
+class SkylinePacker {
+
+    private final int width;
+    private final int height;
+
+    // Segments of the skyline as {x, y, width}, ordered by x and covering the full width
+    private final List<int[]> skyline;
+
+    SkylinePacker(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.skyline = new ArrayList<>();
+        skyline.add(new int[]{0, 0, width});
+    }
+
+    /**
+     * Packs a rectangle of the given size.
+     * @return the {x, y} position of the rectangle, or null if it does not fit.
+     */
+    int[] pack(int rectWidth, int rectHeight) {
+        int bestIndex = -1;
+        int bestTop = Integer.MAX_VALUE;
+        int bestWidth = Integer.MAX_VALUE;
+        int bestY = 0;
+
+        for (int i = 0; i < skyline.size(); i++) {
+            int y = fitAt(i, rectWidth, rectHeight);
+            if (y < 0) {
+                continue;
+            }
+
+            // Prefer the lowest top edge, then the narrowest segment to keep wide gaps available
+            int top = y + rectHeight;
+            int segmentWidth = skyline.get(i)[2];
+            if (top < bestTop || (top == bestTop && segmentWidth < bestWidth)) {
+                bestIndex = i;
+                bestTop = top;
+                bestWidth = segmentWidth;
+                bestY = y;
+            }
+        }
+
+        if (bestIndex < 0) {
+            return null;
+        }
+
+        int x = skyline.get(bestIndex)[0];
+        addSegment(bestIndex, x, bestY + rectHeight, rectWidth);
+        return new int[]{x, bestY};
+    }
+
+    /**
+     * @return the y position a rectangle starting at segment {@code index} would rest on, or -1 if it does not fit.
+     */
+    private int fitAt(int index, int rectWidth, int rectHeight) {
+        int x = skyline.get(index)[0];
+        if (x + rectWidth > width) {
+            return -1;
+        }
+
+        int remaining = rectWidth;
+        int y = 0;
+        for (int i = index; remaining > 0; i++) {
+            int[] segment = skyline.get(i);
+            y = Math.max(y, segment[1]);
+            if (y + rectHeight > height) {
+                return -1;
+            }
+            remaining -= segment[2];
+        }
+        return y;
+    }
+
+    private void addSegment(int index, int x, int y, int segmentWidth) {
+        skyline.add(index, new int[]{x, y, segmentWidth});
+
+        // Shrink or remove the segments now covered by the new one
+        int end = x + segmentWidth;
+        int i = index + 1;
+        while (i < skyline.size()) {
+            int[] segment = skyline.get(i);
+            if (segment[0] >= end) {
+                break;
+            }
+
+            int overlap = end - segment[0];
+            if (overlap >= segment[2]) {
+                skyline.remove(i);
+            } else {
+                segment[0] += overlap;
+                segment[2] -= overlap;
+                break;
+            }
+        }
+
+        // Merge neighbours of equal height
+        for (i = 0; i < skyline.size() - 1; i++) {
+            int[] current = skyline.get(i);
+            int[] next = skyline.get(i + 1);
+            if (current[1] == next[1]) {
+                current[2] += next[2];
+                skyline.remove(i + 1);
+                i--;
+            }
+        }
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,176 @@
+package org.raven.renderer;
+
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.BufferTarget;
+import org.raven.renderer.backend.RenderBackend.BufferUsage;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.system.MemoryUtil.memAddress;
+import static org.lwjgl.system.MemoryUtil.memCopy;
+
+/**
+ * Vertex buffer that streaming batches sub-allocate from every frame, so the CPU never writes
+ * memory the GPU may still be reading.
+ * With persistent mapping the buffer is a ring of {@value #REGIONS} frame regions, each guarded by a
+ * fence placed when its frame ends and waited on before the region is written again. Without it,
+ * the buffer is orphaned at the start of every frame and written with plain uploads.
+ * Runs out of room by growing, which moves all data to a new buffer; batches notice through
+ * {@link #getGeneration()} and point their vertex arrays at the new one.
+ */
+public class StreamBuffer {
+
+    // Frames the CPU may run ahead of the GPU before waiting
+    private static final int REGIONS = 3;
+
+    private long regionSize;
+    private boolean persistent;
+    private int bufferId;
+    private long mappedAddress;
+    private final long[] fences = new long[REGIONS];
+    private int region;
+    private long cursor;
+    private long limit;
+    private int generation;
+
+    /**
+     * @param regionSize initial bytes available per frame.
+     */
+    public StreamBuffer(long regionSize) {
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Binds the buffer as vertex buffer, creating it on first use.
+     * Must be called on the thread owning the GL context.
+     */
+    public void bind() {
+        if (bufferId == 0) {
+            create();
+        }
+        Graphics.backend().bindBuffer(BufferTarget.VERTEX, bufferId);
+    }
+
+    private void create() {
+        RenderBackend backend = Graphics.backend();
+        persistent = backend.supportsPersistentMapping();
+        if (persistent) {
+            long size = regionSize * REGIONS;
+            bufferId = backend.createMappedBuffer(BufferTarget.VERTEX, size);
+            ByteBuffer mapped = backend.mapBuffer(BufferTarget.VERTEX, bufferId, size);
+            mappedAddress = memAddress(mapped);
+        } else {
+            bufferId = backend.createBuffer(BufferTarget.VERTEX, regionSize, BufferUsage.STREAM);
+        }
+        region = 0;
+        cursor = 0;
+        limit = regionSize;
+        generation++;
+        GLState.countCalls(2);
+    }
+
+    /**
+     * Moves on to the next frame region, waiting for the GPU if it still reads from it.
+     */
+    public void beginFrame() {
+        if (bufferId == 0) {
+            return;
+        }
+
+        RenderBackend backend = Graphics.backend();
+        if (persistent) {
+            region = (region + 1) % REGIONS;
+            if (fences[region] != 0) {
+                backend.waitFence(fences[region]);
+                backend.deleteFence(fences[region]);
+                fences[region] = 0;
+                GLState.countCalls(2);
+            }
+            cursor = region * regionSize;
+        } else {
+            backend.orphanBuffer(BufferTarget.VERTEX, bufferId, regionSize, BufferUsage.STREAM);
+            GLState.countCalls(1);
+            cursor = 0;
+        }
+        limit = cursor + regionSize;
+    }
+
+    /**
+     * Fences the region written this frame. Call after the last draw sourcing from it.
+     */
+    public void endFrame() {
+        if (bufferId != 0 && persistent) {
+            fences[region] = Graphics.backend().createFence();
+            GLState.countCalls(1);
+        }
+    }
+
+    /**
+     * Reserves bytes in the current frame's region, growing the buffer if the region is full.
+     * @param alignment the returned offset is a multiple of it, e.g. the vertex size.
+     * @return the byte offset of the reservation in the buffer.
+     */
+    public long allocate(long bytes, int alignment) {
+        if (bufferId == 0) {
+            create();
+        }
+
+        long offset = (cursor + alignment - 1) / alignment * alignment;
+        if (offset + bytes > limit) {
+            grow(Math.max(regionSize * 2, bytes + alignment));
+            offset = 0;
+        }
+        cursor = offset + bytes;
+        return offset;
+    }
+
+    /**
+     * Copies bytes from native memory into a reservation of the current frame.
+     */
+    public void write(long offset, long address, long bytes) {
+        if (persistent) {
+            memCopy(address, mappedAddress + offset, bytes);
+            Graphics.backend().flushBuffer(BufferTarget.VERTEX, bufferId, offset, bytes);
+        } else {
+            Graphics.backend().uploadBuffer(BufferTarget.VERTEX, bufferId, offset, address, bytes);
+        }
+        GLState.countCalls(2);
+    }
+
+    private void grow(long newRegionSize) {
+        // Draws already issued keep the old storage alive until the GPU is done with it
+        destroy();
+        regionSize = newRegionSize;
+        create();
+    }
+
+    /**
+     * @return a number that changes whenever the buffer is replaced.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getBufferId() {
+        return bufferId;
+    }
+
+    public void destroy() {
+        if (bufferId == 0) {
+            return;
+        }
+
+        RenderBackend backend = Graphics.backend();
+        for (int i = 0; i < REGIONS; i++) {
+            if (fences[i] != 0) {
+                backend.deleteFence(fences[i]);
+                fences[i] = 0;
+            }
+        }
+        backend.deleteBuffer(bufferId);
+        GLState.countCalls(1);
+        bufferId = 0;
+        mappedAddress = 0;
+    }
+}
@@ -1,11 +1,15 @@
 package org.raven.renderer;
 
 import org.lwjgl.BufferUtils;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.PixelFormat;
+import org.raven.renderer.backend.RenderBackend.TextureTarget;
 
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.util.concurrent.CompletableFuture;
 
-import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.stb.STBImage.*;
 
 public class Texture {
@@ -14,20 +18,23 @@ public class Texture {
     private int width;
     private int height;
     private int texId;
+    // Completed once the pixels are on the GPU, right away unless loaded by a TextureLoader
+    private final CompletableFuture<Texture> loaded = new CompletableFuture<>();
+    // Filled region by region after creation, e.g. atlas pages
+    private boolean mutable;
 
     public Texture(String filepath) {
         this.filepath = filepath;
-
-        // Generate texture on GPU
-        texId = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, texId);
-
-        // Set Texture parameters
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT); // Repeat image in all directions
-
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST); // On stretch pixelate
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST); // On shrinking pixelate
+        loaded.complete(this);
+
+        // Pixels mapped from the cache go to the GPU without being copied or decoded
+        TextureCache.Image cached = TextureCache.get(filepath);
+        if (cached != null) {
+            this.width = cached.width();
+            this.height = cached.height();
+            texId = Graphics.backend().createTexture(TextureTarget.TEXTURE_2D, width, height, 1, cached.format(), cached.pixels());
+            return;
+        }
 
         // Load image
         stbi_set_flip_vertically_on_load(true);
@@ -41,10 +48,11 @@ public class Texture {
             this.width = bufferWidth.get(0);
             this.height = bufferHeight.get(0);
 
+            // Generate texture on GPU, pixelated and repeated in all directions
             if (channels.get(0) == 3)
-                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGB, bufferWidth.get(0), bufferHeight.get(0), 0, GL_RGB, GL_UNSIGNED_BYTE, image);
+                texId = Graphics.backend().createTexture(TextureTarget.TEXTURE_2D, width, height, 1, PixelFormat.RGB, image);
             else if (channels.get(0) == 4)
-                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, bufferWidth.get(0), bufferHeight.get(0), 0, GL_RGBA, GL_UNSIGNED_BYTE, image);
+                texId = Graphics.backend().createTexture(TextureTarget.TEXTURE_2D, width, height, 1, PixelFormat.RGBA, image);
             else
                 assert false : "Error: (Texture) Unsupported number of channels";
         } else {
@@ -54,12 +62,102 @@ public class Texture {
         stbi_image_free(image);
     }
 
+    /**
+     * Creates an empty RGBA texture to be filled with {@link #uploadRegion}, e.g. an atlas page.
+     */
+    public Texture(int width, int height) {
+        this.filepath = null;
+        this.width = width;
+        this.height = height;
+        this.mutable = true;
+        loaded.complete(this);
+
+        texId = Graphics.backend().createTexture(TextureTarget.TEXTURE_2D, width, height, 1, PixelFormat.RGBA, null);
+    }
+
+    /**
+     * Creates a texture showing a single placeholder pixel until {@link TextureLoader} replaces it with
+     * the image. The name stays the same, so batches holding it draw the image once it is uploaded.
+     */
+    Texture(String filepath, ByteBuffer placeholder) {
+        this.filepath = filepath;
+        this.width = 1;
+        this.height = 1;
+
+        texId = Graphics.backend().createTexture(TextureTarget.TEXTURE_2D, 1, 1, 1, PixelFormat.RGBA, placeholder);
+    }
+
+    /**
+     * Replaces the placeholder with the image, whose RGBA pixels are staged in a pixel buffer,
+     * and completes {@link #whenLoaded()}.
+     */
+    void finishLoad(int width, int height, int buffer) {
+        RenderBackend backend = Graphics.backend();
+        backend.resizeTexture(TextureTarget.TEXTURE_2D, texId, width, height, 1, PixelFormat.RGBA);
+        backend.uploadTextureFromBuffer(TextureTarget.TEXTURE_2D, texId, 0, 0, 0, width, height, 1,
+                PixelFormat.RGBA, buffer, 0);
+        this.width = width;
+        this.height = height;
+        loaded.complete(this);
+    }
+
+    /**
+     * @return a future completed once the image is uploaded, or completed exceptionally if it could not
+     * be loaded, in which case the placeholder stays.
+     */
+    public CompletableFuture<Texture> whenLoaded() {
+        // A copy, so callers cannot complete the texture's own future
+        return loaded.copy();
+    }
+
+    /**
+     * @return false while an asynchronously loaded texture still shows its placeholder; width and
+     * height are those of the placeholder until then.
+     */
+    public boolean isLoaded() {
+        return loaded.isDone() && !loaded.isCompletedExceptionally();
+    }
+
+    CompletableFuture<Texture> getLoadFuture() {
+        return loaded;
+    }
+
+    /**
+     * Uploads tightly packed RGBA pixels into the given region of the texture.
+     */
+    public void uploadRegion(int x, int y, int regionWidth, int regionHeight, ByteBuffer pixels) {
+        Graphics.backend().uploadTexture(TextureTarget.TEXTURE_2D, texId, x, y, 0, regionWidth, regionHeight, 1,
+                PixelFormat.RGBA, pixels);
+    }
+
+    public void destroy() {
+        Graphics.backend().deleteTexture(texId);
+        GLState.textureDeleted(texId);
+    }
+
     public void bind() {
-        glBindTexture(GL_TEXTURE_2D, texId);
+        Graphics.backend().bindTexture(TextureTarget.TEXTURE_2D, texId);
+        GLState.countTextureBind();
     }
 
     public void unbind() {
-        glBindTexture(GL_TEXTURE_2D, 0);
+        Graphics.backend().bindTexture(TextureTarget.TEXTURE_2D, 0);
+    }
+
+    /**
+     * @return whether the pixels keep changing through {@link #uploadRegion}, so copies of the texture,
+     * such as texture array layers, would go stale.
+     */
+    public boolean isMutable() {
+        return mutable;
+    }
+
+    public String getFilepath() {
+        return filepath;
+    }
+
+    public int getTexId() {
+        return texId;
     }
 
     public int getWidth() {
@@ -0,0 +1,139 @@
+package org.raven.renderer;
+
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.PixelFormat;
+import org.raven.renderer.backend.RenderBackend.TextureTarget;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * A GL_TEXTURE_2D_ARRAY holding same sized textures as layers, so a single binding can
+ * serve any number of textures. Storage starts small and doubles when it runs out of layers.
+ */
+public class TextureArray {
+
+    private static final int INITIAL_LAYERS = 8;
+
+    private final int width;
+    private final int height;
+    private final int maxLayers;
+    private int texId;
+    private int capacity;
+    private Map<Texture, Integer> layers;
+
+    public TextureArray(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.maxLayers = Graphics.backend().getMaxArrayTextureLayers();
+        this.layers = new HashMap<>();
+        this.texId = allocate(Math.min(INITIAL_LAYERS, maxLayers));
+    }
+
+    private int allocate(int layerCount) {
+        // Same sampling as regular textures
+        RenderBackend backend = Graphics.backend();
+        int id = backend.createTexture(TextureTarget.TEXTURE_2D_ARRAY, width, height, layerCount, PixelFormat.RGBA, null);
+        backend.bindTexture(TextureTarget.TEXTURE_2D_ARRAY, 0);
+
+        this.capacity = layerCount;
+        return id;
+    }
+
+    public boolean accepts(Texture texture) {
+        return texture.getWidth() == width && texture.getHeight() == height
+                && (layers.containsKey(texture) || layers.size() < maxLayers);
+    }
+
+    /**
+     * Returns the layer of the texture, copying it into the array when not yet present.
+     * @return the layer index, or -1 if the texture does not fit this array.
+     */
+    public int addLayer(Texture texture) {
+        Integer layer = layers.get(texture);
+        if (layer != null) {
+            return layer;
+        }
+        if (!accepts(texture)) {
+            return -1;
+        }
+        if (layers.size() == capacity) {
+            grow();
+        }
+
+        layer = layers.size();
+
+        // Read back once at registration, converting to RGBA so every layer shares one format
+        RenderBackend backend = Graphics.backend();
+        ByteBuffer pixels = memAlloc(width * height * 4);
+        backend.readTexture(TextureTarget.TEXTURE_2D, texture.getTexId(), pixels);
+        texture.unbind();
+
+        backend.uploadTexture(TextureTarget.TEXTURE_2D_ARRAY, texId, 0, 0, layer, width, height, 1, PixelFormat.RGBA, pixels);
+        backend.bindTexture(TextureTarget.TEXTURE_2D_ARRAY, 0);
+        memFree(pixels);
+
+        layers.put(texture, layer);
+        return layer;
+    }
+
+    private void grow() {
+        int oldId = texId;
+        int oldCapacity = capacity;
+        int newId = allocate(Math.min(oldCapacity * 2, maxLayers));
+
+        RenderBackend backend = Graphics.backend();
+        if (backend.supportsCopyImage()) {
+            backend.copyTextureLayers(oldId, newId, width, height, oldCapacity);
+        } else {
+            // Without copy image support the existing layers take a round trip through the CPU
+            ByteBuffer pixels = memAlloc(width * height * 4 * oldCapacity);
+            backend.readTexture(TextureTarget.TEXTURE_2D_ARRAY, oldId, pixels);
+            backend.uploadTexture(TextureTarget.TEXTURE_2D_ARRAY, newId, 0, 0, 0, width, height, oldCapacity,
+                    PixelFormat.RGBA, pixels);
+            backend.bindTexture(TextureTarget.TEXTURE_2D_ARRAY, 0);
+            memFree(pixels);
+        }
+
+        backend.deleteTexture(oldId);
+        GLState.textureDeleted(oldId);
+        texId = newId;
+    }
+
+    public boolean contains(Texture texture) {
+        return layers.containsKey(texture);
+    }
+
+    /**
+     * @return the layer of the texture, or -1 if it is not part of this array.
+     */
+    public int getLayer(Texture texture) {
+        return layers.getOrDefault(texture, -1);
+    }
+
+    public void bind() {
+        Graphics.backend().bindTexture(TextureTarget.TEXTURE_2D_ARRAY, texId);
+        GLState.countTextureBind();
+    }
+
+    public void unbind() {
+        Graphics.backend().bindTexture(TextureTarget.TEXTURE_2D_ARRAY, 0);
+    }
+
+    public int getTexId() {
+        return texId;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,237 @@
+package org.raven.renderer;
+
+import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
+import org.raven.objects.components.Sprite;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend.TextureTarget;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Packs loaded images into large atlas pages, so sprites from many image files share a
+ * handful of textures. Returned sprites point at an atlas page with remapped texture
+ * coordinates and can be used by a {@link org.raven.objects.components.SpriteRenderer} as is.
+ */
+public class TextureAtlas {
+
+    private static final Logger LOGGER = Logger.getLogger(TextureAtlas.class.getName());
+
+    public static final int DEFAULT_PAGE_SIZE = 2048;
+    public static final int DEFAULT_PADDING = 2;
+
+    private static class Entry {
+        private int width;
+        private int height;
+        // Page and position of the image, without padding
+        private int page;
+        private int x;
+        private int y;
+        private Sprite sprite;
+    }
+
+    private final int pageSize;
+    private final int padding;
+
+    private List<Texture> pages;
+    private List<SkylinePacker> packers;
+    private Map<String, Entry> entries;
+
+    public TextureAtlas() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_PADDING);
+    }
+
+    /**
+     * @param padding empty pixels kept around every image to prevent neighbours bleeding in.
+     */
+    public TextureAtlas(int pageSize, int padding) {
+        this.pageSize = Math.min(pageSize, Graphics.backend().getMaxTextureSize());
+        this.padding = padding;
+        this.pages = new ArrayList<>();
+        this.packers = new ArrayList<>();
+        this.entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * Returns the sprite of an image in the atlas, loading and packing the image on first use.
+     * Images already in the atlas never move, a new page is opened when the image fits on none.
+     * @return null if the image is larger than an atlas page.
+     */
+    public Sprite getSprite(String filepath) {
+        Entry entry = entries.get(filepath);
+        if (entry != null) {
+            return entry.sprite;
+        }
+
+        // Always decode as RGBA so every image matches the page format
+        stbi_set_flip_vertically_on_load(true);
+        IntBuffer bufferWidth = BufferUtils.createIntBuffer(1);
+        IntBuffer bufferHeight = BufferUtils.createIntBuffer(1);
+        IntBuffer channels = BufferUtils.createIntBuffer(1);
+        ByteBuffer image = stbi_load(filepath, bufferWidth, bufferHeight, channels, 4);
+        if (image == null) {
+            throw new AssertionError("Error loading image" + filepath);
+        }
+
+        entry = new Entry();
+        entry.width = bufferWidth.get(0);
+        entry.height = bufferHeight.get(0);
+        if (entry.width + 2 * padding > pageSize || entry.height + 2 * padding > pageSize) {
+            LOGGER.log(Level.WARNING, "Image {0} does not fit an atlas page.", filepath);
+            stbi_image_free(image);
+            return null;
+        }
+
+        entry.sprite = new Sprite(null);
+        entries.put(filepath, entry);
+        if (!place(entry, image)) {
+            addPage();
+            place(entry, image);
+        }
+        stbi_image_free(image);
+        return entry.sprite;
+    }
+
+    /**
+     * Tries to pack the entry on any of the existing pages.
+     */
+    private boolean place(Entry entry, ByteBuffer pixels) {
+        for (int i = 0; i < pages.size(); i++) {
+            int[] position = packers.get(i).pack(entry.width + 2 * padding, entry.height + 2 * padding);
+            if (position != null) {
+                upload(entry, i, position[0] + padding, position[1] + padding, pixels);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Repacks the images of every page tallest first, which usually wastes less space than the
+     * order they were loaded in and leaves more room for later images. Images stay on their page,
+     * so only texture coordinates change, and renderers showing them are marked dirty. Static
+     * objects among them pick the change up once invalidated, see {@link Renderer#invalidate}.
+     * Reads the pages back from the GPU, so this is best done while loading.
+     * @return false if the images of some page do not fit in the new order; that page keeps its layout.
+     */
+    public boolean rebuild() {
+        boolean rebuilt = true;
+        ByteBuffer pagePixels = null;
+        for (int page = 0; page < pages.size(); page++) {
+            List<Entry> sorted = new ArrayList<>();
+            for (Entry entry : entries.values()) {
+                if (entry.page == page) {
+                    sorted.add(entry);
+                }
+            }
+            sorted.sort(Comparator.comparingInt((Entry e) -> e.height).reversed());
+
+            // Dry run first so a failed rebuild leaves the page intact
+            SkylinePacker packer = new SkylinePacker(pageSize, pageSize);
+            int[][] positions = new int[sorted.size()][];
+            boolean fits = true;
+            for (int i = 0; i < sorted.size() && fits; i++) {
+                Entry entry = sorted.get(i);
+                positions[i] = packer.pack(entry.width + 2 * padding, entry.height + 2 * padding);
+                fits = positions[i] != null;
+            }
+            if (!fits) {
+                LOGGER.log(Level.WARNING, "Atlas page {0} could not be repacked.", page);
+                rebuilt = false;
+                continue;
+            }
+
+            if (pagePixels == null) {
+                pagePixels = memAlloc(pageSize * pageSize * 4);
+            }
+            Texture texture = pages.get(page);
+            Graphics.backend().readTexture(TextureTarget.TEXTURE_2D, texture.getTexId(), pagePixels);
+            List<ByteBuffer> images = new ArrayList<>(sorted.size());
+            for (Entry entry : sorted) {
+                images.add(copyImage(pagePixels, entry));
+            }
+
+            // Cleared, so no old pixels remain in the padding around the moved images
+            memSet(pagePixels, 0);
+            texture.uploadRegion(0, 0, pageSize, pageSize, pagePixels);
+            for (int i = 0; i < sorted.size(); i++) {
+                upload(sorted.get(i), page, positions[i][0] + padding, positions[i][1] + padding, images.get(i));
+                memFree(images.get(i));
+            }
+            packers.set(page, packer);
+        }
+        if (pagePixels != null) {
+            memFree(pagePixels);
+        }
+        LOGGER.log(Level.INFO, "Rebuilt texture atlas with {0} images.", entries.size());
+        return rebuilt;
+    }
+
+    /**
+     * @return the tightly packed pixels of the entry, cut out of a whole page.
+     */
+    private ByteBuffer copyImage(ByteBuffer pagePixels, Entry entry) {
+        int rowBytes = entry.width * 4;
+        ByteBuffer image = memAlloc(rowBytes * entry.height);
+        for (int row = 0; row < entry.height; row++) {
+            long source = memAddress(pagePixels) + ((long) (entry.y + row) * pageSize + entry.x) * 4;
+            memCopy(source, memAddress(image) + (long) row * rowBytes, rowBytes);
+        }
+        return image;
+    }
+
+    private void addPage() {
+        pages.add(new Texture(pageSize, pageSize));
+        packers.add(new SkylinePacker(pageSize, pageSize));
+    }
+
+    private void upload(Entry entry, int pageIndex, int x, int y, ByteBuffer pixels) {
+        Texture page = pages.get(pageIndex);
+        page.uploadRegion(x, y, entry.width, entry.height, pixels);
+        entry.page = pageIndex;
+        entry.x = x;
+        entry.y = y;
+
+        float leftX = x / (float) pageSize;
+        float rightX = (x + entry.width) / (float) pageSize;
+        float bottomY = y / (float) pageSize;
+        float topY = (y + entry.height) / (float) pageSize;
+
+        // Same corner order as sprites covering a whole texture, setting them marks renderers showing the sprite dirty
+        entry.sprite.setTexture(page);
+        entry.sprite.setTexCoords(new Vector2f[]{
+                new Vector2f(rightX, topY),
+                new Vector2f(rightX, bottomY),
+                new Vector2f(leftX, bottomY),
+                new Vector2f(leftX, topY)
+        });
+    }
+
+    public void destroy() {
+        for (Texture page : pages) {
+            page.destroy();
+        }
+        pages.clear();
+        packers.clear();
+        entries.clear();
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+}
@@ -0,0 +1,212 @@
+package org.raven.renderer;
+
+import org.raven.renderer.backend.RenderBackend.PixelFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.lwjgl.stb.STBImage.*;
+
+/**
+ * Decoded images stored as files named after the hash of their source, so startup maps pixels
+ * instead of decoding PNGs. A changed source has a different hash and misses the cache, which
+ * makes stale entries harmless; they are just never read again.
+ * A cache file is a little endian header followed by the pixels of every level, rows bottom up as
+ * textures expect them:
+ * <pre>
+ * | magic (4) | version (4) | width (4) | height (4) | channels (4) | levels (4) | pixels |
+ * </pre>
+ * Fill it ahead of time with {@link #main} ('gradlew importTextures'), otherwise images are imported
+ * the first time they are loaded.
+ */
+public class TextureCache {
+
+    private static final Logger LOGGER = Logger.getLogger(TextureCache.class.getName());
+
+    // "RTEX" read as little endian int
+    private static final int MAGIC = 0x58455452;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+    private static final String EXTENSION = ".rtex";
+
+    // Per user rather than relative to the working directory, so a packaged game writes nowhere unexpected.
+    // Change with -Draven.textureCache=<directory>, disable with -Draven.textureCache=
+    private static final String DIRECTORY = System.getProperty("raven.textureCache",
+            Paths.get(System.getProperty("user.home"), ".raven", "texture-cache").toString());
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private TextureCache() {
+        // Private constructor to prevent initialisation.
+    }
+
+    /**
+     * A cached image, its pixels mapped straight from the cache file.
+     * @param pixels the first level only, as textures sample without mipmaps.
+     */
+    public record Image(int width, int height, PixelFormat format, int levels, ByteBuffer pixels) {
+    }
+
+    public static boolean isEnabled() {
+        return !DIRECTORY.isEmpty();
+    }
+
+    /**
+     * Maps the cached image of the source, importing it first if the cache has none for its current contents.
+     * Safe to call from any thread.
+     * @return null if the cache is disabled or the image could not be cached, in which case callers decode
+     * the source themselves.
+     */
+    public static Image get(String source) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        try {
+            Path file = cacheFile(Paths.get(source));
+            Image image = read(file);
+            return image != null ? image : read(write(source, file));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not use texture cache for " + source + ", decoding it instead.", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the cache file for the source's current contents, whether it exists or not.
+     */
+    static Path cacheFile(Path source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform.", e);
+        }
+        // Read rather than mapped, a mapping would keep the source locked on Windows until it is collected
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(source)) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        // Half the hash is plenty to tell a folder of assets apart
+        byte[] hash = digest.digest();
+        StringBuilder name = new StringBuilder(hash.length + EXTENSION.length());
+        for (int i = 0; i < hash.length / 2; i++) {
+            name.append(String.format("%02x", hash[i]));
+        }
+        return Paths.get(DIRECTORY).resolve(name.append(EXTENSION).toString());
+    }
+
+    /**
+     * @return the mapped image, or null if there is no valid cache file.
+     */
+    static Image read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                return null;
+            }
+
+            int width = mapped.getInt(8);
+            int height = mapped.getInt(12);
+            int channels = mapped.getInt(16);
+            int levels = mapped.getInt(20);
+            PixelFormat format = channels == 4 ? PixelFormat.RGBA : channels == 3 ? PixelFormat.RGB : null;
+            long levelBytes = (long) width * height * channels;
+            if (format == null || width <= 0 || height <= 0 || levels < 1 || HEADER_BYTES + levelBytes > channel.size()) {
+                return null;
+            }
+
+            ByteBuffer pixels = mapped.slice(HEADER_BYTES, (int) levelBytes);
+            return new Image(width, height, format, levels, pixels);
+        }
+    }
+
+    /**
+     * Decodes the source to RGBA and writes it to the cache file.
+     * @return the written cache file.
+     */
+    private static Path write(String source, Path file) throws IOException {
+        int[] width = new int[1];
+        int[] height = new int[1];
+        int[] channels = new int[1];
+        stbi_set_flip_vertically_on_load_thread(1);
+        ByteBuffer pixels = stbi_load(source, width, height, channels, 4);
+        if (pixels == null) {
+            throw new IOException("Could not decode " + source + ": " + stbi_failure_reason());
+        }
+
+        try {
+            return write(file, width[0], height[0], pixels);
+        } finally {
+            stbi_image_free(pixels);
+        }
+    }
+
+    /**
+     * Writes RGBA pixels to the cache file. Written to a temporary file first, so other threads and
+     * processes never see a partial one.
+     * @return the written cache file.
+     */
+    static Path write(Path file, int width, int height, ByteBuffer pixels) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(4).putInt(1).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (pixels.hasRemaining()) {
+                channel.write(pixels);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    /**
+     * Imports every PNG below the given directories that is not cached yet, e.g. as a build step.
+     */
+    public static void main(String[] args) throws IOException {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Texture cache is disabled.");
+        }
+
+        for (String directory : args.length == 0 ? new String[]{"assets"} : args) {
+            List<Path> sources;
+            try (Stream<Path> files = Files.walk(Paths.get(directory))) {
+                sources = files.filter(path -> path.toString().toLowerCase().endsWith(".png")).collect(Collectors.toList());
+            }
+            for (Path source : sources) {
+                Path file = cacheFile(source);
+                if (read(file) == null) {
+                    write(source.toString(), file);
+                    LOGGER.info("Imported " + source + " as " + file.getFileName());
+                }
+            }
+        }
+    }
+}
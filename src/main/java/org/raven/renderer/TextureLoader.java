@@ -0,0 +1,211 @@
+package org.raven.renderer;
+
+import org.lwjgl.BufferUtils;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.BufferTarget;
+import org.raven.renderer.backend.RenderBackend.BufferUsage;
+import org.raven.renderer.backend.RenderBackend.PixelFormat;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+
+/**
+ * Loads textures without stalling the GL thread. Images are decoded on worker threads, then
+ * {@link #update()} copies them into a pixel buffer of their own, a few rows at a time so no frame
+ * copies more than the budget. Textures show a transparent placeholder pixel until every row is
+ * staged, then the GPU copies the whole image from the pixel buffer in one upload.
+ * Images in the {@link TextureCache} are mapped by the workers instead of decoded.
+ */
+public class TextureLoader {
+
+    private static final Logger LOGGER = Logger.getLogger(TextureLoader.class.getName());
+
+    public static final long DEFAULT_UPLOAD_BUDGET = 4 * 1024 * 1024;
+
+    // Always decoded to RGBA, which keeps rows 4 byte aligned and is the driver's fast path
+    private static final int CHANNELS = 4;
+
+    /**
+     * An image decoded by a worker, or the reason it could not be.
+     * @param cached whether the pixels are mapped from the texture cache rather than allocated by stb.
+     */
+    private record Decoded(Texture texture, ByteBuffer pixels, int width, int height, boolean cached, String error) {
+    }
+
+    private final ExecutorService decoders;
+    private final Queue<Decoded> decoded = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer placeholder;
+    private long uploadBudget;
+    // Textures loaded but not uploaded or failed yet
+    private int pending;
+
+    // The image being staged, its pixel buffer and the next of its rows to stage
+    private Decoded current;
+    private int stagingBuffer;
+    private int currentRow;
+
+    public TextureLoader() {
+        this(DEFAULT_UPLOAD_BUDGET);
+    }
+
+    /**
+     * @param uploadBudget bytes staged per frame at most, except that every frame stages at least one row.
+     */
+    public TextureLoader(long uploadBudget) {
+        this.uploadBudget = uploadBudget;
+        this.placeholder = BufferUtils.createByteBuffer(CHANNELS);
+
+        // Leave a core to the GL thread, daemons so pending loads do not keep the game alive
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.decoders = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Raven Texture Decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a texture showing the placeholder and starts decoding the image in the background.
+     * Must be called on the thread owning the GL context.
+     * @see Texture#whenLoaded()
+     */
+    public Texture load(String filepath) {
+        Texture texture = new Texture(filepath, placeholder);
+        decoders.execute(() -> {
+            // The executor would swallow the exception and leave the texture loading forever
+            try {
+                decoded.add(decode(texture));
+            } catch (RuntimeException e) {
+                decoded.add(new Decoded(texture, null, 0, 0, false, e.toString()));
+            }
+        });
+        pending++;
+        return texture;
+    }
+
+    private static Decoded decode(Texture texture) {
+        TextureCache.Image image = TextureCache.get(texture.getFilepath());
+        if (image != null && image.format() == PixelFormat.RGBA) {
+            return new Decoded(texture, image.pixels(), image.width(), image.height(), true, null);
+        }
+
+        int[] width = new int[1];
+        int[] height = new int[1];
+        int[] channels = new int[1];
+        // The flip flag is global unless set per thread, and the GL thread may load images at the same time
+        stbi_set_flip_vertically_on_load_thread(1);
+        ByteBuffer pixels = stbi_load(texture.getFilepath(), width, height, channels, CHANNELS);
+        if (pixels == null) {
+            return new Decoded(texture, null, 0, 0, false, stbi_failure_reason());
+        }
+        return new Decoded(texture, pixels, width[0], height[0], false, null);
+    }
+
+    /**
+     * Stages decoded images up to the frame's budget. Call once per frame on the thread owning the GL context.
+     */
+    public void update() {
+        if (current == null && decoded.isEmpty()) {
+            return;
+        }
+
+        RenderBackend backend = Graphics.backend();
+        long budget = uploadBudget;
+        while (budget > 0) {
+            if (current == null) {
+                current = decoded.poll();
+                if (current == null) {
+                    break;
+                }
+                if (current.error() != null) {
+                    fail(current);
+                    pending--;
+                    current = null;
+                    continue;
+                }
+                // Never drawn from before the last row is written, so writing it does not wait for the GPU
+                stagingBuffer = backend.createBuffer(BufferTarget.PIXEL_UNPACK,
+                        (long) current.width() * current.height() * CHANNELS, BufferUsage.STREAM);
+                currentRow = 0;
+                GLState.countCalls(1);
+            }
+
+            int rowBytes = current.width() * CHANNELS;
+            int rows = (int) Math.max(1, Math.min(current.height() - currentRow, budget / rowBytes));
+            long bytes = (long) rows * rowBytes;
+            long offset = (long) currentRow * rowBytes;
+            backend.uploadBuffer(BufferTarget.PIXEL_UNPACK, stagingBuffer, offset, memAddress(current.pixels()) + offset, bytes);
+            GLState.countCalls(1);
+            currentRow += rows;
+            budget -= bytes;
+
+            if (currentRow == current.height()) {
+                // The placeholder stays until here, batches never see a partially uploaded image
+                current.texture().finishLoad(current.width(), current.height(), stagingBuffer);
+                // Deletion waits for the GPU to finish copying from the buffer
+                backend.deleteBuffer(stagingBuffer);
+                GLState.countCalls(3);
+                stagingBuffer = 0;
+                free(current);
+                pending--;
+                current = null;
+            }
+        }
+        // Uploads from client memory would otherwise be read as offsets into the pixel buffer
+        backend.bindBuffer(BufferTarget.PIXEL_UNPACK, 0);
+    }
+
+    private static void free(Decoded image) {
+        // Mapped pixels are unmapped once the buffer is collected
+        if (image.pixels() != null && !image.cached()) {
+            stbi_image_free(image.pixels());
+        }
+    }
+
+    private void fail(Decoded failed) {
+        String filepath = failed.texture().getFilepath();
+        LOGGER.log(Level.SEVERE, "Could not load texture " + filepath + ": " + failed.error());
+        failed.texture().getLoadFuture().completeExceptionally(
+                new IllegalStateException("Error loading image " + filepath + ": " + failed.error()));
+    }
+
+    public long getUploadBudget() {
+        return uploadBudget;
+    }
+
+    public void setUploadBudget(long uploadBudget) {
+        this.uploadBudget = uploadBudget;
+    }
+
+    /**
+     * @return whether images are still being decoded or staged.
+     */
+    public boolean isBusy() {
+        return pending > 0;
+    }
+
+    /**
+     * Stops decoding and frees images not uploaded yet. Textures still loading keep their placeholder.
+     */
+    public void destroy() {
+        decoders.shutdownNow();
+        if (current != null) {
+            Graphics.backend().deleteBuffer(stagingBuffer);
+            stagingBuffer = 0;
+            free(current);
+            current = null;
+        }
+        for (Decoded left = decoded.poll(); left != null; left = decoded.poll()) {
+            free(left);
+        }
+    }
+}
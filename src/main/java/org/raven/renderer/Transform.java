@@ -1,46 +1,102 @@
 package org.raven.renderer;
 
 import org.joml.Vector2f;
+import org.joml.Vector2fc;
 
 import java.util.Objects;
 
+/**
+ * Position and scale of a game object. Only changes through the mutators, which bump the
+ * version and notify the listener, so dependents never have to poll for changes.
+ */
 public class Transform {
 
     private Vector2f position;
     private Vector2f scale;
+    private int version;
+    private Runnable changeListener;
 
     public Transform() {
         init(new Vector2f(), new Vector2f());
     }
 
-    public Transform(Vector2f position) {
+    public Transform(Vector2fc position) {
         init(position, new Vector2f());
     }
 
-    public Transform(Vector2f position, Vector2f scale) {
+    public Transform(Vector2fc position, Vector2fc scale) {
         init(position, scale);
     }
 
-    public void init(Vector2f position, Vector2f scale) {
-        this.position = position;
-        this.scale = scale;
+    public void init(Vector2fc position, Vector2fc scale) {
+        // Copied, so vectors held by the caller cannot change the transform unnoticed
+        this.position = new Vector2f(position);
+        this.scale = new Vector2f(scale);
+        changed();
     }
 
-    public Vector2f getPosition() {
+    public Vector2fc getPosition() {
         return position;
     }
 
-    public Vector2f getScale() {
+    public Vector2fc getScale() {
         return scale;
     }
 
+    public void setPosition(float x, float y) {
+        if (position.x != x || position.y != y) {
+            position.set(x, y);
+            changed();
+        }
+    }
+
+    public void setPosition(Vector2fc position) {
+        setPosition(position.x(), position.y());
+    }
+
+    public void translate(float dx, float dy) {
+        setPosition(position.x + dx, position.y + dy);
+    }
+
+    public void setScale(float x, float y) {
+        if (scale.x != x || scale.y != y) {
+            scale.set(x, y);
+            changed();
+        }
+    }
+
+    public void setScale(Vector2fc scale) {
+        setScale(scale.x(), scale.y());
+    }
+
+    /**
+     * @return a counter increased on every change, for dependents that compare against the last version they saw.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the single listener called after every change, replacing any previous one.
+     */
+    public void setChangeListener(Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    private void changed() {
+        version++;
+        if (changeListener != null) {
+            changeListener.run();
+        }
+    }
+
     public Transform copy() {
-        return new Transform(new Vector2f(this.position), new Vector2f(this.scale));
+        return new Transform(this.position, this.scale);
     }
 
     public void copy(Transform to) {
-        to.position.set(this.position);
-        to.scale.set(this.scale);
+        to.setPosition(this.position);
+        to.setScale(this.scale);
     }
 
     @Override
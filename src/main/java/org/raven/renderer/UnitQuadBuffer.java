@@ -0,0 +1,68 @@
+package org.raven.renderer;
+
+import org.lwjgl.system.MemoryStack;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RenderBackend;
+import org.raven.renderer.backend.RenderBackend.BufferTarget;
+import org.raven.renderer.backend.RenderBackend.BufferUsage;
+import org.raven.renderer.backend.RenderBackend.IndexType;
+
+import static org.lwjgl.system.MemoryUtil.memAddress;
+
+/**
+ * Corners and indices of the unit quad instanced batches expand every sprite from. They are the same
+ * for every instanced batch, so batches share one pair of buffers bound into each of their vertex arrays.
+ */
+public class UnitQuadBuffer {
+
+    public static final int INDEX_COUNT = 6;
+    public static final IndexType INDEX_TYPE = IndexType.UNSIGNED_SHORT;
+
+    // Unit quad corners in the same order the quad batch emits its vertices
+    private static final float[] CORNERS = {
+            1.0f, 1.0f,
+            1.0f, 0.0f,
+            0.0f, 0.0f,
+            0.0f, 1.0f
+    };
+    private static final short[] INDICES = {3, 2, 0, 0, 2, 1};
+
+    private int vboID;
+    private int eboID;
+
+    /**
+     * Binds both buffers into the bound vertex array, uploading them on first use. Leaves the corner
+     * buffer bound for the corner attribute. Must be called on the thread owning the GL context.
+     */
+    public void bind() {
+        RenderBackend backend = Graphics.backend();
+        if (vboID == 0) {
+            upload(backend);
+        } else {
+            backend.bindBuffer(BufferTarget.VERTEX, vboID);
+            backend.bindBuffer(BufferTarget.INDEX, eboID);
+        }
+    }
+
+    // Created while the vertex array is bound, which attaches the index buffer to it
+    private void upload(RenderBackend backend) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            long cornerBytes = (long) CORNERS.length * Float.BYTES;
+            vboID = backend.createBuffer(BufferTarget.VERTEX, cornerBytes, BufferUsage.STATIC);
+            backend.uploadBuffer(BufferTarget.VERTEX, vboID, 0, memAddress(stack.floats(CORNERS)), cornerBytes);
+
+            long indexBytes = (long) INDICES.length * Short.BYTES;
+            eboID = backend.createBuffer(BufferTarget.INDEX, indexBytes, BufferUsage.STATIC);
+            backend.uploadBuffer(BufferTarget.INDEX, eboID, 0, memAddress(stack.shorts(INDICES)), indexBytes);
+        }
+    }
+
+    public void destroy() {
+        if (vboID != 0) {
+            Graphics.backend().deleteBuffer(vboID);
+            Graphics.backend().deleteBuffer(eboID);
+            vboID = 0;
+            eboID = 0;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package org.raven.renderer.backend;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+import static org.lwjgl.opengl.GL42.glDrawElementsInstancedBaseInstance;
+import static org.lwjgl.opengl.GL43.glCopyImageSubData;
+import static org.lwjgl.opengl.GL44.*;
+
+/**
+ * The OpenGL 3.3 core backend, using newer functionality where the driver offers it.
+ * Must only be called on the thread owning the GL context.
+ */
+public class GLRenderBackend implements RenderBackend {
+
+    private static final int PERSISTENT_FLAGS = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT;
+    private static final long FENCE_WAIT_NANOS = 1_000_000L;
+
+    @Override
+    public boolean supportsPersistentMapping() {
+        GLCapabilities caps = GL.getCapabilities();
+        return caps.OpenGL44 || caps.GL_ARB_buffer_storage;
+    }
+
+    @Override
+    public boolean supportsBaseInstance() {
+        return GL.getCapabilities().glDrawElementsInstancedBaseInstance != 0L;
+    }
+
+    @Override
+    public boolean supportsCopyImage() {
+        return GL.getCapabilities().glCopyImageSubData != 0L;
+    }
+
+    @Override
+    public boolean supportsTimerQueries() {
+        GLCapabilities caps = GL.getCapabilities();
+        return caps.OpenGL33 || caps.GL_ARB_timer_query;
+    }
+
+    @Override
+    public int getMaxTextureSize() {
+        return glGetInteger(GL_MAX_TEXTURE_SIZE);
+    }
+
+    @Override
+    public int getMaxArrayTextureLayers() {
+        return glGetInteger(GL_MAX_ARRAY_TEXTURE_LAYERS);
+    }
+
+    @Override
+    public int createBuffer(BufferTarget target, long size, BufferUsage usage) {
+        int buffer = glGenBuffers();
+        glBindBuffer(toGL(target), buffer);
+        glBufferData(toGL(target), size, toGL(usage));
+        return buffer;
+    }
+
+    @Override
+    public int createMappedBuffer(BufferTarget target, long size) {
+        int buffer = glGenBuffers();
+        glBindBuffer(toGL(target), buffer);
+        glBufferStorage(toGL(target), size, PERSISTENT_FLAGS);
+        return buffer;
+    }
+
+    @Override
+    public ByteBuffer mapBuffer(BufferTarget target, int buffer, long size) {
+        glBindBuffer(toGL(target), buffer);
+        // Flushed explicitly, so only written ranges are made visible to the GPU
+        ByteBuffer mapped = glMapBufferRange(toGL(target), 0, size, PERSISTENT_FLAGS | GL_MAP_FLUSH_EXPLICIT_BIT);
+        if (mapped == null) {
+            throw new IllegalStateException("Could not persistently map buffer " + buffer + ".");
+        }
+        return mapped;
+    }
+
+    @Override
+    public void flushBuffer(BufferTarget target, int buffer, long offset, long length) {
+        glBindBuffer(toGL(target), buffer);
+        glFlushMappedBufferRange(toGL(target), offset, length);
+    }
+
+    @Override
+    public void orphanBuffer(BufferTarget target, int buffer, long size, BufferUsage usage) {
+        glBindBuffer(toGL(target), buffer);
+        glBufferData(toGL(target), size, toGL(usage));
+    }
+
+    @Override
+    public void uploadBuffer(BufferTarget target, int buffer, long offset, long address, long length) {
+        glBindBuffer(toGL(target), buffer);
+        nglBufferSubData(toGL(target), offset, length, address);
+    }
+
+    @Override
+    public void bindBuffer(BufferTarget target, int buffer) {
+        glBindBuffer(toGL(target), buffer);
+    }
+
+    @Override
+    public void bindBufferBase(BufferTarget target, int binding, int buffer) {
+        glBindBufferBase(toGL(target), binding, buffer);
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        // Deleting a persistently mapped buffer unmaps it as well
+        glDeleteBuffers(buffer);
+    }
+
+    @Override
+    public int createVertexArray() {
+        return glGenVertexArrays();
+    }
+
+    @Override
+    public void bindVertexArray(int vertexArray) {
+        glBindVertexArray(vertexArray);
+    }
+
+    @Override
+    public void vertexAttribute(int index, int size, AttributeType type, boolean normalized, int stride, long offset, int divisor) {
+        glVertexAttribPointer(index, size, toGL(type), normalized, stride, offset);
+        if (divisor != 0) {
+            glVertexAttribDivisor(index, divisor);
+        }
+        glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void deleteVertexArray(int vertexArray) {
+        glDeleteVertexArrays(vertexArray);
+    }
+
+    @Override
+    public void drawElements(int indexCount, IndexType type, long indexOffset) {
+        glDrawElements(GL_TRIANGLES, indexCount, toGL(type), indexOffset);
+    }
+
+    @Override
+    public void drawElementsBaseVertex(int indexCount, IndexType type, long indexOffset, int baseVertex) {
+        glDrawElementsBaseVertex(GL_TRIANGLES, indexCount, toGL(type), indexOffset, baseVertex);
+    }
+
+    @Override
+    public void drawElementsInstanced(int indexCount, IndexType type, long indexOffset, int instanceCount, int baseInstance) {
+        if (baseInstance == 0) {
+            glDrawElementsInstanced(GL_TRIANGLES, indexCount, toGL(type), indexOffset, instanceCount);
+        } else {
+            glDrawElementsInstancedBaseInstance(GL_TRIANGLES, indexCount, toGL(type), indexOffset, instanceCount, baseInstance);
+        }
+    }
+
+    @Override
+    public long createFence() {
+        return glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+    }
+
+    @Override
+    public void waitFence(long fence) {
+        // Flushes on the first wait, so the fence is guaranteed to be signaled eventually
+        int flags = GL_SYNC_FLUSH_COMMANDS_BIT;
+        while (true) {
+            int result = glClientWaitSync(fence, flags, FENCE_WAIT_NANOS);
+            if (result == GL_ALREADY_SIGNALED || result == GL_CONDITION_SATISFIED) {
+                return;
+            }
+            if (result == GL_WAIT_FAILED) {
+                throw new IllegalStateException("Waiting for fence failed.");
+            }
+            flags = 0;
+        }
+    }
+
+    @Override
+    public void deleteFence(long fence) {
+        glDeleteSync(fence);
+    }
+
+    @Override
+    public int createTexture(TextureTarget target, int width, int height, int layers, PixelFormat format, ByteBuffer pixels) {
+        int glTarget = toGL(target);
+        int texture = glGenTextures();
+        glBindTexture(glTarget, texture);
+
+        glTexParameteri(glTarget, GL_TEXTURE_WRAP_S, GL_REPEAT);
+        glTexParameteri(glTarget, GL_TEXTURE_WRAP_T, GL_REPEAT); // Repeat image in all directions
+        glTexParameteri(glTarget, GL_TEXTURE_MIN_FILTER, GL_NEAREST); // On stretch pixelate
+        glTexParameteri(glTarget, GL_TEXTURE_MAG_FILTER, GL_NEAREST); // On shrinking pixelate
+
+        if (target == TextureTarget.TEXTURE_2D_ARRAY) {
+            glTexImage3D(glTarget, 0, GL_RGBA8, width, height, layers, 0, toGL(format), GL_UNSIGNED_BYTE, pixels);
+        } else {
+            glTexImage2D(glTarget, 0, toGL(format), width, height, 0, toGL(format), GL_UNSIGNED_BYTE, pixels);
+        }
+        return texture;
+    }
+
+    @Override
+    public void uploadTexture(TextureTarget target, int texture, int x, int y, int layer, int width, int height, int layers,
+                              PixelFormat format, ByteBuffer pixels) {
+        int glTarget = toGL(target);
+        glBindTexture(glTarget, texture);
+        if (target == TextureTarget.TEXTURE_2D_ARRAY) {
+            glTexSubImage3D(glTarget, 0, x, y, layer, width, height, layers, toGL(format), GL_UNSIGNED_BYTE, pixels);
+        } else {
+            glTexSubImage2D(glTarget, 0, x, y, width, height, toGL(format), GL_UNSIGNED_BYTE, pixels);
+        }
+    }
+
+    @Override
+    public void resizeTexture(TextureTarget target, int texture, int width, int height, int layers, PixelFormat format) {
+        int glTarget = toGL(target);
+        glBindTexture(glTarget, texture);
+        if (target == TextureTarget.TEXTURE_2D_ARRAY) {
+            glTexImage3D(glTarget, 0, GL_RGBA8, width, height, layers, 0, toGL(format), GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        } else {
+            glTexImage2D(glTarget, 0, toGL(format), width, height, 0, toGL(format), GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        }
+    }
+
+    @Override
+    public void uploadTextureFromBuffer(TextureTarget target, int texture, int x, int y, int layer, int width, int height, int layers,
+                                        PixelFormat format, int buffer, long offset) {
+        int glTarget = toGL(target);
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, buffer);
+        glBindTexture(glTarget, texture);
+        if (target == TextureTarget.TEXTURE_2D_ARRAY) {
+            glTexSubImage3D(glTarget, 0, x, y, layer, width, height, layers, toGL(format), GL_UNSIGNED_BYTE, offset);
+        } else {
+            glTexSubImage2D(glTarget, 0, x, y, width, height, toGL(format), GL_UNSIGNED_BYTE, offset);
+        }
+        // Uploads from client memory would otherwise be read as offsets into the buffer
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+    }
+
+    @Override
+    public void readTexture(TextureTarget target, int texture, ByteBuffer pixels) {
+        glBindTexture(toGL(target), texture);
+        glGetTexImage(toGL(target), 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+    }
+
+    @Override
+    public void copyTextureLayers(int source, int target, int width, int height, int layers) {
+        glCopyImageSubData(source, GL_TEXTURE_2D_ARRAY, 0, 0, 0, 0,
+                target, GL_TEXTURE_2D_ARRAY, 0, 0, 0, 0, width, height, layers);
+    }
+
+    @Override
+    public void activeTextureUnit(int unit) {
+        glActiveTexture(GL_TEXTURE0 + unit);
+    }
+
+    @Override
+    public void bindTexture(TextureTarget target, int texture) {
+        glBindTexture(toGL(target), texture);
+    }
+
+    @Override
+    public void deleteTexture(int texture) {
+        glDeleteTextures(texture);
+    }
+
+    @Override
+    public int createProgram(String vertexSource, String fragmentSource) {
+        int vertexID = compileShader(GL_VERTEX_SHADER, vertexSource, "Vertex");
+        int fragmentID = compileShader(GL_FRAGMENT_SHADER, fragmentSource, "Fragment");
+
+        // Link up vertex shaders with fragment shaders
+        int program = glCreateProgram();
+        glAttachShader(program, vertexID);
+        glAttachShader(program, fragmentID);
+        glLinkProgram(program);
+
+        // Check for linking errors
+        if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+            int len = glGetProgrami(program, GL_INFO_LOG_LENGTH);
+            throw new IllegalStateException("Linking shaders failed.\n" + glGetProgramInfoLog(program, len));
+        }
+        return program;
+    }
+
+    private static int compileShader(int type, String source, String stage) {
+        int shader = glCreateShader(type);
+        glShaderSource(shader, source);
+        glCompileShader(shader);
+
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) == GL_FALSE) {
+            int len = glGetShaderi(shader, GL_INFO_LOG_LENGTH);
+            throw new IllegalStateException(stage + " shader compilation failed.\n" + glGetShaderInfoLog(shader, len));
+        }
+        return shader;
+    }
+
+    @Override
+    public void useProgram(int program) {
+        glUseProgram(program);
+    }
+
+    @Override
+    public Map<String, Integer> getUniformLocations(int program) {
+        Map<String, Integer> locations = new HashMap<>();
+        int count = glGetProgrami(program, GL_ACTIVE_UNIFORMS);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer size = stack.mallocInt(1);
+            IntBuffer type = stack.mallocInt(1);
+            for (int i = 0; i < count; i++) {
+                String name = glGetActiveUniform(program, i, size, type);
+                int location = glGetUniformLocation(program, name);
+                // Members of uniform blocks have no location
+                if (location < 0) {
+                    continue;
+                }
+
+                // Arrays are reported as 'name[0]'
+                if (name.endsWith("[0]")) {
+                    name = name.substring(0, name.length() - 3);
+                }
+                locations.put(name, location);
+            }
+        }
+        return locations;
+    }
+
+    @Override
+    public void bindUniformBlock(int program, String block, int binding) {
+        // GLSL 330 cannot declare block bindings in the shader itself
+        int index = glGetUniformBlockIndex(program, block);
+        if (index != GL_INVALID_INDEX) {
+            glUniformBlockBinding(program, index, binding);
+        }
+    }
+
+    @Override
+    public void uniformMatrix4(int location, FloatBuffer matrix) {
+        glUniformMatrix4fv(location, false, matrix);
+    }
+
+    @Override
+    public void uniformMatrix3(int location, FloatBuffer matrix) {
+        glUniformMatrix3fv(location, false, matrix);
+    }
+
+    @Override
+    public void uniform(int location, int value) {
+        glUniform1i(location, value);
+    }
+
+    @Override
+    public void uniform(int location, int[] values) {
+        glUniform1iv(location, values);
+    }
+
+    @Override
+    public void uniform(int location, float value) {
+        glUniform1f(location, value);
+    }
+
+    @Override
+    public void uniform(int location, float x, float y) {
+        glUniform2f(location, x, y);
+    }
+
+    @Override
+    public void uniform(int location, float x, float y, float z) {
+        glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void uniform(int location, float x, float y, float z, float w) {
+        glUniform4f(location, x, y, z, w);
+    }
+
+    private static int toGL(BufferTarget target) {
+        return switch (target) {
+            case VERTEX -> GL_ARRAY_BUFFER;
+            case INDEX -> GL_ELEMENT_ARRAY_BUFFER;
+            case UNIFORM -> GL_UNIFORM_BUFFER;
+            case PIXEL_UNPACK -> GL_PIXEL_UNPACK_BUFFER;
+        };
+    }
+
+    private static int toGL(AttributeType type) {
+        return switch (type) {
+            case FLOAT -> GL_FLOAT;
+            case UNSIGNED_BYTE -> GL_UNSIGNED_BYTE;
+            case UNSIGNED_SHORT -> GL_UNSIGNED_SHORT;
+        };
+    }
+
+    private static int toGL(BufferUsage usage) {
+        return switch (usage) {
+            case STATIC -> GL_STATIC_DRAW;
+            case DYNAMIC -> GL_DYNAMIC_DRAW;
+            case STREAM -> GL_STREAM_DRAW;
+        };
+    }
+
+    private static int toGL(IndexType type) {
+        return switch (type) {
+            case UNSIGNED_SHORT -> GL_UNSIGNED_SHORT;
+            case UNSIGNED_INT -> GL_UNSIGNED_INT;
+        };
+    }
+
+    private static int toGL(TextureTarget target) {
+        return switch (target) {
+            case TEXTURE_2D -> GL_TEXTURE_2D;
+            case TEXTURE_2D_ARRAY -> GL_TEXTURE_2D_ARRAY;
+        };
+    }
+
+    private static int toGL(PixelFormat format) {
+        return switch (format) {
+            case RGB -> GL_RGB;
+            case RGBA -> GL_RGBA;
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package org.raven.renderer.backend;
+
+/**
+ * Holds the backend all rendering goes through. OpenGL unless replaced before anything is rendered.
+ */
+public final class Graphics {
+
+    private static RenderBackend backend = new GLRenderBackend();
+
+    private Graphics() {
+    }
+
+    public static RenderBackend backend() {
+        return backend;
+    }
+
+    /**
+     * Replaces the backend. Must be called before any GL object is created, as objects are not
+     * carried over between backends.
+     */
+    public static void setBackend(RenderBackend backend) {
+        Graphics.backend = backend;
+    }
+}
@@ -0,0 +1,377 @@
+package org.raven.renderer.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Backend that draws nothing and only counts the calls made and bytes passed to it, so the CPU side
+ * of rendering can be benchmarked and tested without a window or GPU. Reports every optional
+ * capability as supported, so the most capable code paths run.
+ * Not thread safe, like the GL backend it stands in for.
+ */
+public class RecordingRenderBackend implements RenderBackend {
+
+    // Large enough to never limit the renderer
+    private static final int MAX_TEXTURE_SIZE = 16384;
+    private static final int MAX_ARRAY_TEXTURE_LAYERS = 2048;
+
+    private int nextName = 1;
+    private long nextFence = 1;
+    // Backing memory of persistently mapped buffers, freed when the buffer is deleted
+    private final Map<Integer, ByteBuffer> mappings = new HashMap<>();
+
+    private long calls;
+    private long drawCalls;
+    private long indicesDrawn;
+    private long instancesDrawn;
+    private long bufferUploads;
+    private long bufferBytes;
+    private long textureUploads;
+    private long textureBytes;
+    private long binds;
+    private long uniformUploads;
+
+    /**
+     * Resets all counters, e.g. at the start of a measured frame.
+     */
+    public void reset() {
+        calls = 0;
+        drawCalls = 0;
+        indicesDrawn = 0;
+        instancesDrawn = 0;
+        bufferUploads = 0;
+        bufferBytes = 0;
+        textureUploads = 0;
+        textureBytes = 0;
+        binds = 0;
+        uniformUploads = 0;
+    }
+
+    @Override
+    public boolean supportsPersistentMapping() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsBaseInstance() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsCopyImage() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsTimerQueries() {
+        // The profiler's GPU timers talk to GL directly
+        return false;
+    }
+
+    @Override
+    public int getMaxTextureSize() {
+        return MAX_TEXTURE_SIZE;
+    }
+
+    @Override
+    public int getMaxArrayTextureLayers() {
+        return MAX_ARRAY_TEXTURE_LAYERS;
+    }
+
+    @Override
+    public int createBuffer(BufferTarget target, long size, BufferUsage usage) {
+        calls++;
+        return nextName++;
+    }
+
+    @Override
+    public int createMappedBuffer(BufferTarget target, long size) {
+        calls++;
+        int buffer = nextName++;
+        mappings.put(buffer, memAlloc((int) size));
+        return buffer;
+    }
+
+    @Override
+    public ByteBuffer mapBuffer(BufferTarget target, int buffer, long size) {
+        calls++;
+        ByteBuffer mapping = mappings.get(buffer);
+        if (mapping == null) {
+            throw new IllegalStateException("Buffer " + buffer + " was not created as mapped buffer.");
+        }
+        return mapping;
+    }
+
+    @Override
+    public void flushBuffer(BufferTarget target, int buffer, long offset, long length) {
+        calls++;
+        bufferUploads++;
+        bufferBytes += length;
+    }
+
+    @Override
+    public void orphanBuffer(BufferTarget target, int buffer, long size, BufferUsage usage) {
+        calls++;
+    }
+
+    @Override
+    public void uploadBuffer(BufferTarget target, int buffer, long offset, long address, long length) {
+        calls++;
+        bufferUploads++;
+        bufferBytes += length;
+    }
+
+    @Override
+    public void bindBuffer(BufferTarget target, int buffer) {
+        calls++;
+        binds++;
+    }
+
+    @Override
+    public void bindBufferBase(BufferTarget target, int binding, int buffer) {
+        calls++;
+        binds++;
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        calls++;
+        ByteBuffer mapping = mappings.remove(buffer);
+        if (mapping != null) {
+            memFree(mapping);
+        }
+    }
+
+    @Override
+    public int createVertexArray() {
+        calls++;
+        return nextName++;
+    }
+
+    @Override
+    public void bindVertexArray(int vertexArray) {
+        calls++;
+        binds++;
+    }
+
+    @Override
+    public void vertexAttribute(int index, int size, AttributeType type, boolean normalized, int stride, long offset, int divisor) {
+        calls++;
+    }
+
+    @Override
+    public void deleteVertexArray(int vertexArray) {
+        calls++;
+    }
+
+    @Override
+    public void drawElements(int indexCount, IndexType type, long indexOffset) {
+        calls++;
+        drawCalls++;
+        indicesDrawn += indexCount;
+    }
+
+    @Override
+    public void drawElementsBaseVertex(int indexCount, IndexType type, long indexOffset, int baseVertex) {
+        calls++;
+        drawCalls++;
+        indicesDrawn += indexCount;
+    }
+
+    @Override
+    public void drawElementsInstanced(int indexCount, IndexType type, long indexOffset, int instanceCount, int baseInstance) {
+        calls++;
+        drawCalls++;
+        indicesDrawn += (long) indexCount * instanceCount;
+        instancesDrawn += instanceCount;
+    }
+
+    @Override
+    public long createFence() {
+        calls++;
+        return nextFence++;
+    }
+
+    @Override
+    public void waitFence(long fence) {
+        // Nothing runs on a GPU, so every fence is signaled right away
+        calls++;
+    }
+
+    @Override
+    public void deleteFence(long fence) {
+        calls++;
+    }
+
+    @Override
+    public int createTexture(TextureTarget target, int width, int height, int layers, PixelFormat format, ByteBuffer pixels) {
+        calls++;
+        if (pixels != null) {
+            textureUploads++;
+            textureBytes += pixels.remaining();
+        }
+        return nextName++;
+    }
+
+    @Override
+    public void uploadTexture(TextureTarget target, int texture, int x, int y, int layer, int width, int height, int layers,
+                              PixelFormat format, ByteBuffer pixels) {
+        calls++;
+        textureUploads++;
+        textureBytes += (long) width * height * Math.max(layers, 1) * format.channels;
+    }
+
+    @Override
+    public void resizeTexture(TextureTarget target, int texture, int width, int height, int layers, PixelFormat format) {
+        calls++;
+    }
+
+    @Override
+    public void uploadTextureFromBuffer(TextureTarget target, int texture, int x, int y, int layer, int width, int height, int layers,
+                                        PixelFormat format, int buffer, long offset) {
+        calls++;
+        textureUploads++;
+        textureBytes += (long) width * height * Math.max(layers, 1) * format.channels;
+    }
+
+    @Override
+    public void readTexture(TextureTarget target, int texture, ByteBuffer pixels) {
+        // Leaves the pixels untouched, there is no texture memory to read from
+        calls++;
+    }
+
+    @Override
+    public void copyTextureLayers(int source, int target, int width, int height, int layers) {
+        calls++;
+    }
+
+    @Override
+    public void activeTextureUnit(int unit) {
+        calls++;
+    }
+
+    @Override
+    public void bindTexture(TextureTarget target, int texture) {
+        calls++;
+        binds++;
+    }
+
+    @Override
+    public void deleteTexture(int texture) {
+        calls++;
+    }
+
+    @Override
+    public int createProgram(String vertexSource, String fragmentSource) {
+        calls++;
+        return nextName++;
+    }
+
+    @Override
+    public void useProgram(int program) {
+        calls++;
+        binds++;
+    }
+
+    @Override
+    public Map<String, Integer> getUniformLocations(int program) {
+        // Uploads then go to location -1, which GL ignores as well
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void bindUniformBlock(int program, String block, int binding) {
+        calls++;
+    }
+
+    @Override
+    public void uniformMatrix4(int location, FloatBuffer matrix) {
+        uniformUpload();
+    }
+
+    @Override
+    public void uniformMatrix3(int location, FloatBuffer matrix) {
+        uniformUpload();
+    }
+
+    @Override
+    public void uniform(int location, int value) {
+        uniformUpload();
+    }
+
+    @Override
+    public void uniform(int location, int[] values) {
+        uniformUpload();
+    }
+
+    @Override
+    public void uniform(int location, float value) {
+        uniformUpload();
+    }
+
+    @Override
+    public void uniform(int location, float x, float y) {
+        uniformUpload();
+    }
+
+    @Override
+    public void uniform(int location, float x, float y, float z) {
+        uniformUpload();
+    }
+
+    @Override
+    public void uniform(int location, float x, float y, float z, float w) {
+        uniformUpload();
+    }
+
+    private void uniformUpload() {
+        calls++;
+        uniformUploads++;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    public long getIndicesDrawn() {
+        return indicesDrawn;
+    }
+
+    public long getInstancesDrawn() {
+        return instancesDrawn;
+    }
+
+    public long getBufferUploads() {
+        return bufferUploads;
+    }
+
+    public long getBufferBytes() {
+        return bufferBytes;
+    }
+
+    public long getTextureUploads() {
+        return textureUploads;
+    }
+
+    public long getTextureBytes() {
+        return textureBytes;
+    }
+
+    public long getBinds() {
+        return binds;
+    }
+
+    public long getUniformUploads() {
+        return uniformUploads;
+    }
+}
@@ -0,0 +1,259 @@
+package org.raven.renderer.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Map;
+
+/**
+ * The graphics API calls the renderer makes, so the render path can run against OpenGL or, e.g. in
+ * benchmarks on machines without a GPU, against a backend that only records them.
+ * Mirrors the GL objects it wraps: every object is an int name, 0 meaning none, and binds are not
+ * filtered; skipping redundant binds is left to {@link org.raven.renderer.GLState}.
+ */
+public interface RenderBackend {
+
+    enum BufferTarget {
+        VERTEX,
+        INDEX,
+        UNIFORM,
+        // Source of texture uploads, see uploadTextureFromBuffer
+        PIXEL_UNPACK
+    }
+
+    enum BufferUsage {
+        STATIC,
+        DYNAMIC,
+        // Rewritten every frame
+        STREAM
+    }
+
+    enum AttributeType {
+        FLOAT(Float.BYTES),
+        UNSIGNED_BYTE(Byte.BYTES),
+        UNSIGNED_SHORT(Short.BYTES);
+
+        public final int bytes;
+
+        AttributeType(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    enum IndexType {
+        UNSIGNED_SHORT(Short.BYTES),
+        UNSIGNED_INT(Integer.BYTES);
+
+        public final int bytes;
+
+        IndexType(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    enum TextureTarget {
+        TEXTURE_2D,
+        TEXTURE_2D_ARRAY
+    }
+
+    enum PixelFormat {
+        RGB(3),
+        RGBA(4);
+
+        public final int channels;
+
+        PixelFormat(int channels) {
+            this.channels = channels;
+        }
+    }
+
+    // Capabilities
+
+    /**
+     * @return whether buffers can be persistently mapped, see {@link #createMappedBuffer}.
+     */
+    boolean supportsPersistentMapping();
+
+    /**
+     * @return whether instanced draws can start at an instance other than the first.
+     */
+    boolean supportsBaseInstance();
+
+    /**
+     * @return whether texture layers can be copied on the GPU, see {@link #copyTextureLayers}.
+     */
+    boolean supportsCopyImage();
+
+    boolean supportsTimerQueries();
+
+    int getMaxTextureSize();
+
+    int getMaxArrayTextureLayers();
+
+    // Buffers
+
+    /**
+     * Creates a buffer of {@code size} undefined bytes and leaves it bound to the target.
+     */
+    int createBuffer(BufferTarget target, long size, BufferUsage usage);
+
+    /**
+     * Creates a buffer with immutable storage that stays mapped for writing, see {@link #mapBuffer}.
+     * Requires {@link #supportsPersistentMapping()}.
+     */
+    int createMappedBuffer(BufferTarget target, long size);
+
+    /**
+     * @return the persistent mapping of a buffer from {@link #createMappedBuffer}, valid until it is deleted.
+     * Writes become visible to the GPU once flushed with {@link #flushBuffer}.
+     */
+    ByteBuffer mapBuffer(BufferTarget target, int buffer, long size);
+
+    void flushBuffer(BufferTarget target, int buffer, long offset, long length);
+
+    /**
+     * Replaces the storage of the buffer with {@code size} undefined bytes. The GPU keeps reading the
+     * old storage for draws already issued, so writing the new one does not wait for them.
+     */
+    void orphanBuffer(BufferTarget target, int buffer, long size, BufferUsage usage);
+
+    /**
+     * Copies {@code length} bytes from native memory at {@code address} into the buffer.
+     */
+    void uploadBuffer(BufferTarget target, int buffer, long offset, long address, long length);
+
+    void bindBuffer(BufferTarget target, int buffer);
+
+    /**
+     * Binds the buffer to an indexed binding point, e.g. of a uniform block.
+     */
+    void bindBufferBase(BufferTarget target, int binding, int buffer);
+
+    void deleteBuffer(int buffer);
+
+    // Vertex arrays
+
+    int createVertexArray();
+
+    void bindVertexArray(int vertexArray);
+
+    /**
+     * Enables and describes an attribute of the bound vertex array, sourced from the bound vertex buffer.
+     * @param divisor 0 to advance per vertex, 1 to advance per instance.
+     */
+    void vertexAttribute(int index, int size, AttributeType type, boolean normalized, int stride, long offset, int divisor);
+
+    void deleteVertexArray(int vertexArray);
+
+    // Drawing, always triangles from the bound vertex array
+
+    void drawElements(int indexCount, IndexType type, long indexOffset);
+
+    /**
+     * Like {@link #drawElements}, adding {@code baseVertex} to every index.
+     */
+    void drawElementsBaseVertex(int indexCount, IndexType type, long indexOffset, int baseVertex);
+
+    /**
+     * @param baseInstance must be 0 unless {@link #supportsBaseInstance()}.
+     */
+    void drawElementsInstanced(int indexCount, IndexType type, long indexOffset, int instanceCount, int baseInstance);
+
+    // Fences
+
+    /**
+     * @return a fence signaled once the GPU finished all commands issued so far.
+     */
+    long createFence();
+
+    /**
+     * Blocks until the fence is signaled.
+     */
+    void waitFence(long fence);
+
+    void deleteFence(long fence);
+
+    // Textures, all sampled with nearest filtering and repeated
+
+    /**
+     * Creates a texture and leaves it bound to the active unit.
+     * @param layers layer count of array textures, ignored for 2D textures.
+     * @param pixels initial pixels, or null to leave the texture undefined.
+     */
+    int createTexture(TextureTarget target, int width, int height, int layers, PixelFormat format, ByteBuffer pixels);
+
+    /**
+     * Replaces a region of the texture with tightly packed pixels.
+     * @param layer first layer of array textures, ignored for 2D textures.
+     */
+    void uploadTexture(TextureTarget target, int texture, int x, int y, int layer, int width, int height, int layers,
+                       PixelFormat format, ByteBuffer pixels);
+
+    /**
+     * Replaces the storage of the texture with undefined pixels of a new size, keeping its name.
+     */
+    void resizeTexture(TextureTarget target, int texture, int width, int height, int layers, PixelFormat format);
+
+    /**
+     * Like {@link #uploadTexture}, with the pixels read from a pixel buffer at {@code offset} instead
+     * of client memory, so the copy into the texture does not block the caller.
+     * Leaves no pixel buffer bound.
+     */
+    void uploadTextureFromBuffer(TextureTarget target, int texture, int x, int y, int layer, int width, int height, int layers,
+                                 PixelFormat format, int buffer, long offset);
+
+    /**
+     * Reads all layers of the texture back as RGBA.
+     */
+    void readTexture(TextureTarget target, int texture, ByteBuffer pixels);
+
+    /**
+     * Copies the first layers of an array texture into another one of the same size.
+     * Requires {@link #supportsCopyImage()}.
+     */
+    void copyTextureLayers(int source, int target, int width, int height, int layers);
+
+    void activeTextureUnit(int unit);
+
+    /**
+     * Binds the texture to the active unit.
+     */
+    void bindTexture(TextureTarget target, int texture);
+
+    void deleteTexture(int texture);
+
+    // Programs
+
+    /**
+     * Compiles and links a program.
+     * @throws IllegalStateException with the driver's log if compiling or linking failed.
+     */
+    int createProgram(String vertexSource, String fragmentSource);
+
+    void useProgram(int program);
+
+    /**
+     * @return the locations of all active uniforms outside of uniform blocks, arrays by their name without index.
+     */
+    Map<String, Integer> getUniformLocations(int program);
+
+    /**
+     * Assigns the uniform block to a binding point, if the program has the block.
+     */
+    void bindUniformBlock(int program, String block, int binding);
+
+    void uniformMatrix4(int location, FloatBuffer matrix);
+
+    void uniformMatrix3(int location, FloatBuffer matrix);
+
+    void uniform(int location, int value);
+
+    void uniform(int location, int[] values);
+
+    void uniform(int location, float value);
+
+    void uniform(int location, float x, float y);
+
+    void uniform(int location, float x, float y, float z);
+
+    void uniform(int location, float x, float y, float z, float w);
+}
@@ -52,6 +52,7 @@ public class LevelEditorScene extends Scene {
         for (GameObject go : this.gameObjects) {
             go.update(dt);
         }
+        updateSpatialIndex();
 
         this.renderer.render();
     }
@@ -3,20 +3,38 @@ package org.raven.scenes;
 import imgui.ImGui;
 import org.raven.Camera;
 import org.raven.objects.GameObject;
+import org.raven.renderer.RenderStats;
 import org.raven.renderer.Renderer;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public abstract class Scene {
 
+    private static final Logger LOGGER = Logger.getLogger(Scene.class.getName());
+
+    // Roughly the size of a few tiles, objects rarely span more than a couple of cells
+    private static final float SPATIAL_CELL_SIZE = 128.0f;
+
     private boolean isRunning = false;
     protected Renderer renderer = new Renderer();
 
     protected List<GameObject> gameObjects = new ArrayList<>();
+    protected SpatialHashGrid spatialIndex = new SpatialHashGrid(SPATIAL_CELL_SIZE);
+    // Game objects whose transform changed since the last spatial index update
+    private final List<GameObject> changedObjects = new ArrayList<>();
+    private final Consumer<GameObject> changeListener = changedObjects::add;
     protected Camera camera;
 
     protected GameObject activeGameObject = null;
+    // Shown along with logging them, see -Draven.renderStats
+    protected boolean showRenderStats = System.getProperty("raven.renderStats") != null;
 
     protected Scene() {
 
@@ -38,6 +56,58 @@ public abstract class Scene {
             go.start();
             this.renderer.add(go);
         }
+        spatialIndex.insert(go);
+        go.setChangeListener(changeListener);
+    }
+
+    public void removeGameObjectFromScene(GameObject go) {
+        if (gameObjects.remove(go)) {
+            go.setChangeListener(null);
+            spatialIndex.remove(go);
+            if (isRunning) {
+                this.renderer.remove(go);
+            }
+        }
+    }
+
+    /**
+     * Moves game objects whose transform changed to their current position in the spatial index.
+     * Should be called after game objects were updated.
+     */
+    protected void updateSpatialIndex() {
+        for (GameObject go : changedObjects) {
+            go.acknowledgeChange();
+            if (!go.isStatic()) {
+                spatialIndex.update(go);
+            }
+        }
+        changedObjects.clear();
+    }
+
+    /**
+     * Applies changes made to a static game object, which are otherwise never picked up.
+     */
+    public void invalidate(GameObject go) {
+        spatialIndex.update(go);
+        if (isRunning) {
+            this.renderer.invalidate(go);
+        }
+    }
+
+    /**
+     * Adds all game objects overlapping the world space rectangle to {@code result}.
+     * @return the number of game objects found.
+     */
+    public int queryArea(float minX, float minY, float maxX, float maxY, List<GameObject> result) {
+        return spatialIndex.query(minX, minY, maxX, maxY, result);
+    }
+
+    /**
+     * Adds all game objects containing the world space point to {@code result}.
+     * @return the number of game objects found.
+     */
+    public int queryPoint(float x, float y, List<GameObject> result) {
+        return spatialIndex.query(x, y, result);
     }
 
     public abstract void update(float dt);
@@ -50,6 +120,10 @@ public abstract class Scene {
         return camera;
     }
 
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
     public void sceneImgui() {
         if (activeGameObject != null) {
             ImGui.begin("Inspector");
@@ -57,9 +131,63 @@ public abstract class Scene {
             ImGui.end();
         }
 
+        if (showRenderStats) {
+            ImGui.begin("Render Stats");
+            renderStatsImgui();
+            ImGui.end();
+        }
+
         imgui();
     }
 
+    /**
+     * Contents of the statistics window: the renderer's last frame and controls for logging it.
+     */
+    private void renderStatsImgui() {
+        RenderStats stats = renderer.getStats();
+        ImGui.text("Frame: " + stats.getFrame());
+        ImGui.separator();
+        ImGui.text("Batches: " + stats.getBatches() + " (" + stats.getBatchesDrawn() + " drawn, "
+                + stats.getBatchesCulled() + " culled)");
+        ImGui.text("Sprites: " + stats.getSpritesSubmitted() + " (" + stats.getSpritesDrawn() + " drawn, "
+                + stats.getSpritesCulled() + " culled)");
+        ImGui.text("Draw calls: " + stats.getDrawCalls());
+        ImGui.text(String.format("Vertex upload: %.1f KB in %d calls", stats.getBytesUploaded() / 1024.0f, stats.getUploadCalls()));
+        ImGui.text("Texture binds: " + stats.getTextureBinds());
+        ImGui.text("Program switches: " + stats.getProgramSwitches());
+        ImGui.text("GL calls: " + stats.getGlCalls() + " (" + stats.getSkippedGlCalls() + " skipped)");
+        ImGui.separator();
+        ImGui.text(String.format("Prepare: %.3f ms", stats.getPrepareNanos() / 1e6f));
+        ImGui.text(String.format("Capture: %.3f ms", stats.getCaptureNanos() / 1e6f));
+        ImGui.text(String.format("Submit: %.3f ms", stats.getSubmitNanos() / 1e6f));
+        ImGui.separator();
+
+        if (renderer.isLoggingStats()) {
+            ImGui.text("Logging to " + renderer.getStatsLogPath());
+            if (ImGui.button("Stop logging")) {
+                renderer.stopStatsLog();
+            }
+        } else {
+            if (ImGui.button("Log CSV")) {
+                logStatsToNewFile("csv");
+            }
+            ImGui.sameLine();
+            if (ImGui.button("Log JSON")) {
+                logStatsToNewFile("jsonl");
+            }
+        }
+    }
+
+    // Timestamped file in the working directory, errors are only logged as this runs from the UI
+    private void logStatsToNewFile(String extension) {
+        Path path = Paths.get("render-stats-" + System.currentTimeMillis() + "." + extension);
+        try {
+            renderer.startStatsLog(path);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not create render statistics log " + path, e);
+        }
+    }
+
     public void imgui() {
 
     }
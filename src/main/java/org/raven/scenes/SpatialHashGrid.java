@@ -0,0 +1,357 @@
+package org.raven.scenes;
+
+import org.joml.Vector2fc;
+import org.raven.objects.GameObject;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform hash grid over the world space bounds of game objects. Objects are stored in
+ * every cell their bounds overlap; only cells that contain objects take up memory. Objects
+ * overlapping too many cells, like huge or infinite ones, are kept in a list every query checks.
+ * Queries do not allocate as long as the result list has enough capacity.
+ */
+public class SpatialHashGrid {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INITIAL_CELL_CAPACITY = 4;
+    // Marks free table slots, as every key is a valid cell
+    private static final int EMPTY_SLOT = -1;
+    private static final long MAX_CELLS_PER_OBJECT = 64;
+
+    private final float cellSize;
+
+    // Per object data, indexed by handle
+    private GameObject[] objects;
+    private float[] bounds;
+    private int[] cellRanges;
+    private int[] queryStamps;
+    private int[] freeHandles;
+    private int freeCount;
+    private int handleCount;
+    private Map<GameObject, Integer> handles;
+    private int queryStamp;
+
+    // Open addressing table from packed cell coordinates to cell index
+    private long[] cellKeys;
+    private int[] cellIndices;
+    private int cellCount;
+
+    // Object handles per cell
+    private int[][] cellItems;
+    private int[] cellSizes;
+
+    // Handles of objects overlapping more than MAX_CELLS_PER_OBJECT cells
+    private int[] oversized;
+    private int oversizedCount;
+
+    public SpatialHashGrid(float cellSize) {
+        this.cellSize = cellSize;
+        this.objects = new GameObject[INITIAL_CAPACITY];
+        this.bounds = new float[INITIAL_CAPACITY * 4];
+        this.cellRanges = new int[INITIAL_CAPACITY * 4];
+        this.queryStamps = new int[INITIAL_CAPACITY];
+        this.freeHandles = new int[INITIAL_CAPACITY];
+        this.handles = new IdentityHashMap<>();
+
+        this.cellKeys = new long[INITIAL_CAPACITY];
+        this.cellIndices = new int[INITIAL_CAPACITY];
+        Arrays.fill(cellIndices, EMPTY_SLOT);
+        this.cellItems = new int[INITIAL_CAPACITY][];
+        this.cellSizes = new int[INITIAL_CAPACITY];
+        this.oversized = new int[INITIAL_CELL_CAPACITY];
+    }
+
+    public void insert(GameObject go) {
+        if (handles.containsKey(go)) {
+            update(go);
+            return;
+        }
+
+        int handle = freeCount > 0 ? freeHandles[--freeCount] : handleCount++;
+        ensureObjectCapacity(handleCount);
+        objects[handle] = go;
+        handles.put(go, handle);
+
+        storeBounds(handle, go);
+        computeCellRange(handle);
+        forEachCell(handle, true);
+    }
+
+    /**
+     * Moves the object to the cells matching its current transform. Objects that stayed
+     * within the same cells only have their bounds updated.
+     */
+    public void update(GameObject go) {
+        Integer handle = handles.get(go);
+        if (handle == null) {
+            return;
+        }
+
+        storeBounds(handle, go);
+        int offset = handle * 4;
+        int minX = cellCoord(bounds[offset]);
+        int minY = cellCoord(bounds[offset + 1]);
+        int maxX = cellCoord(bounds[offset + 2]);
+        int maxY = cellCoord(bounds[offset + 3]);
+        if (minX == cellRanges[offset] && minY == cellRanges[offset + 1]
+                && maxX == cellRanges[offset + 2] && maxY == cellRanges[offset + 3]) {
+            return;
+        }
+
+        forEachCell(handle, false);
+        cellRanges[offset] = minX;
+        cellRanges[offset + 1] = minY;
+        cellRanges[offset + 2] = maxX;
+        cellRanges[offset + 3] = maxY;
+        forEachCell(handle, true);
+    }
+
+    public void remove(GameObject go) {
+        Integer handle = handles.remove(go);
+        if (handle == null) {
+            return;
+        }
+
+        forEachCell(handle, false);
+        objects[handle] = null;
+        freeHandles[freeCount++] = handle;
+    }
+
+    /**
+     * Adds every object whose bounds overlap the rectangle to {@code result}.
+     * @return the number of objects added.
+     */
+    public int query(float minX, float minY, float maxX, float maxY, List<GameObject> result) {
+        // Objects spanning several cells are only reported once per query
+        queryStamp++;
+        if (queryStamp == 0) {
+            Arrays.fill(queryStamps, 0);
+            queryStamp = 1;
+        }
+        int found = 0;
+
+        int cellMinX = cellCoord(minX);
+        int cellMinY = cellCoord(minY);
+        int cellMaxX = cellCoord(maxX);
+        int cellMaxY = cellCoord(maxY);
+        if (countCells(cellMinX, cellMinY, cellMaxX, cellMaxY) > cellCount) {
+            // Visiting every existing cell is cheaper than looking up more cells than exist
+            for (int cell = 0; cell < cellCount; cell++) {
+                found += queryItems(cellItems[cell], cellSizes[cell], minX, minY, maxX, maxY, result);
+            }
+        } else {
+            // Long coordinates, as int ones would overflow at the largest cell
+            for (long cy = cellMinY; cy <= cellMaxY; cy++) {
+                for (long cx = cellMinX; cx <= cellMaxX; cx++) {
+                    int cell = findCell((int) cx, (int) cy);
+                    if (cell >= 0) {
+                        found += queryItems(cellItems[cell], cellSizes[cell], minX, minY, maxX, maxY, result);
+                    }
+                }
+            }
+        }
+        found += queryItems(oversized, oversizedCount, minX, minY, maxX, maxY, result);
+        return found;
+    }
+
+    private int queryItems(int[] items, int count, float minX, float minY, float maxX, float maxY, List<GameObject> result) {
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int handle = items[i];
+            if (queryStamps[handle] == queryStamp) {
+                continue;
+            }
+            queryStamps[handle] = queryStamp;
+
+            int offset = handle * 4;
+            if (bounds[offset] <= maxX && bounds[offset + 2] >= minX
+                    && bounds[offset + 1] <= maxY && bounds[offset + 3] >= minY) {
+                result.add(objects[handle]);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds every object whose bounds contain the point to {@code result}.
+     * @return the number of objects added.
+     */
+    public int query(float x, float y, List<GameObject> result) {
+        return query(x, y, x, y, result);
+    }
+
+    public int size() {
+        return handles.size();
+    }
+
+    private void storeBounds(int handle, GameObject go) {
+        // Scale may be negative for mirrored objects
+        Vector2fc position = go.getTransform().getPosition();
+        Vector2fc scale = go.getTransform().getScale();
+        int offset = handle * 4;
+        bounds[offset] = Math.min(position.x(), position.x() + scale.x());
+        bounds[offset + 1] = Math.min(position.y(), position.y() + scale.y());
+        bounds[offset + 2] = Math.max(position.x(), position.x() + scale.x());
+        bounds[offset + 3] = Math.max(position.y(), position.y() + scale.y());
+    }
+
+    private void computeCellRange(int handle) {
+        int offset = handle * 4;
+        cellRanges[offset] = cellCoord(bounds[offset]);
+        cellRanges[offset + 1] = cellCoord(bounds[offset + 1]);
+        cellRanges[offset + 2] = cellCoord(bounds[offset + 2]);
+        cellRanges[offset + 3] = cellCoord(bounds[offset + 3]);
+    }
+
+    // Saturates at the int range for huge and infinite values
+    private int cellCoord(float value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private static long countCells(int minX, int minY, int maxX, int maxY) {
+        if (maxX < minX || maxY < minY) {
+            return 0;
+        }
+        // Up to 2^64 cells for the whole int range, which wraps to zero or below
+        long cells = ((long) maxX - minX + 1) * ((long) maxY - minY + 1);
+        return cells > 0 ? cells : Long.MAX_VALUE;
+    }
+
+    /**
+     * Adds the handle to, or removes it from, every cell of its current cell range, or the
+     * oversized list if the range has too many cells.
+     */
+    private void forEachCell(int handle, boolean add) {
+        int offset = handle * 4;
+        int minX = cellRanges[offset];
+        int minY = cellRanges[offset + 1];
+        int maxX = cellRanges[offset + 2];
+        int maxY = cellRanges[offset + 3];
+        if (countCells(minX, minY, maxX, maxY) > MAX_CELLS_PER_OBJECT) {
+            if (add) {
+                if (oversizedCount == oversized.length) {
+                    oversized = Arrays.copyOf(oversized, oversizedCount * 2);
+                }
+                oversized[oversizedCount++] = handle;
+            } else {
+                oversizedCount = removeItem(oversized, oversizedCount, handle);
+            }
+            return;
+        }
+
+        for (long cy = minY; cy <= maxY; cy++) {
+            for (long cx = minX; cx <= maxX; cx++) {
+                if (add) {
+                    addToCell(getOrCreateCell((int) cx, (int) cy), handle);
+                } else {
+                    int cell = findCell((int) cx, (int) cy);
+                    if (cell >= 0) {
+                        cellSizes[cell] = removeItem(cellItems[cell], cellSizes[cell], handle);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addToCell(int cell, int handle) {
+        if (cellSizes[cell] == cellItems[cell].length) {
+            cellItems[cell] = Arrays.copyOf(cellItems[cell], cellItems[cell].length * 2);
+        }
+        cellItems[cell][cellSizes[cell]++] = handle;
+    }
+
+    /**
+     * @return the new number of items.
+     */
+    private static int removeItem(int[] items, int count, int handle) {
+        for (int i = 0; i < count; i++) {
+            if (items[i] == handle) {
+                // Order does not matter, so move the last item into the gap
+                items[i] = items[count - 1];
+                return count - 1;
+            }
+        }
+        return count;
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private int findCell(int cx, int cy) {
+        long key = key(cx, cy);
+        int mask = cellKeys.length - 1;
+        for (int slot = hash(key, mask); cellIndices[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+            if (cellKeys[slot] == key) {
+                return cellIndices[slot];
+            }
+        }
+        return -1;
+    }
+
+    private int getOrCreateCell(int cx, int cy) {
+        int cell = findCell(cx, cy);
+        if (cell >= 0) {
+            return cell;
+        }
+
+        // Cells are never removed, empty ones are cheap and likely to be reused
+        if ((cellCount + 1) * 2 > cellKeys.length) {
+            growTable();
+        }
+        cell = cellCount++;
+        if (cell == cellItems.length) {
+            cellItems = Arrays.copyOf(cellItems, cell * 2);
+            cellSizes = Arrays.copyOf(cellSizes, cell * 2);
+        }
+        cellItems[cell] = new int[INITIAL_CELL_CAPACITY];
+        insertKey(key(cx, cy), cell);
+        return cell;
+    }
+
+    private void insertKey(long key, int cell) {
+        int mask = cellKeys.length - 1;
+        int slot = hash(key, mask);
+        while (cellIndices[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        cellKeys[slot] = key;
+        cellIndices[slot] = cell;
+    }
+
+    private void growTable() {
+        long[] oldKeys = cellKeys;
+        int[] oldIndices = cellIndices;
+        cellKeys = new long[oldKeys.length * 2];
+        cellIndices = new int[oldKeys.length * 2];
+        Arrays.fill(cellIndices, EMPTY_SLOT);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldIndices[i] != EMPTY_SLOT) {
+                insertKey(oldKeys[i], oldIndices[i]);
+            }
+        }
+    }
+
+    private void ensureObjectCapacity(int capacity) {
+        if (capacity <= objects.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, objects.length * 2);
+        objects = Arrays.copyOf(objects, newCapacity);
+        bounds = Arrays.copyOf(bounds, newCapacity * 4);
+        cellRanges = Arrays.copyOf(cellRanges, newCapacity * 4);
+        queryStamps = Arrays.copyOf(queryStamps, newCapacity);
+        freeHandles = Arrays.copyOf(freeHandles, newCapacity);
+    }
+}
@@ -3,6 +3,7 @@ package org.raven.util;
 public class Asset {
 
     public static final String SHADER_DEFAULT = "assets/shaders/default.glsl";
+    public static final String SHADER_INSTANCED = "assets/shaders/instanced.glsl";
 
     private Asset(){}
 
@@ -1,8 +1,12 @@
 package org.raven.util;
 
+import org.raven.objects.components.Sprite;
 import org.raven.objects.components.Spritesheet;
+import org.raven.profiler.Profiler;
 import org.raven.renderer.Shader;
 import org.raven.renderer.Texture;
+import org.raven.renderer.TextureAtlas;
+import org.raven.renderer.TextureLoader;
 
 import java.io.File;
 import java.util.HashMap;
@@ -17,16 +21,25 @@ public class AssetPool {
     private static Map<String, Shader> shaders = new HashMap<>();
     private static Map<String, Texture> textures = new HashMap<>();
     private static Map<String, Spritesheet> spritesheets = new HashMap<>();
+    private static TextureAtlas atlas = null;
+    private static TextureLoader textureLoader = null;
 
-    public static Shader getShader(String name) {
+    public static Shader getShader(String name, String... defines) {
         File file = new File(name);
-        if (AssetPool.shaders.containsKey(file.getAbsolutePath())) {
-            return AssetPool.shaders.get(file.getAbsolutePath());
+        // Every set of defines is a separately compiled variant of the same file
+        String key = defines.length == 0 ? file.getAbsolutePath() : file.getAbsolutePath() + "#" + String.join(",", defines);
+        if (AssetPool.shaders.containsKey(key)) {
+            return AssetPool.shaders.get(key);
         } else {
-            Shader shader = new Shader(name);
-            shader.compileAndLink();
-            AssetPool.shaders.put(file.getAbsolutePath(), shader);
-            return shader;
+            Profiler.begin("load shader");
+            try {
+                Shader shader = new Shader(name, defines);
+                shader.compileAndLink();
+                AssetPool.shaders.put(key, shader);
+                return shader;
+            } finally {
+                Profiler.end();
+            }
         }
     }
 
@@ -35,10 +48,68 @@ public class AssetPool {
         if (AssetPool.textures.containsKey(file.getAbsolutePath())) {
            return AssetPool.textures.get(file.getAbsolutePath());
         } else {
-            Texture texture = new Texture(name);
+            Profiler.begin("load texture");
+            try {
+                Texture texture = new Texture(name);
+                AssetPool.textures.put(file.getAbsolutePath(), texture);
+                return texture;
+            } finally {
+                Profiler.end();
+            }
+        }
+    }
+
+    /**
+     * Returns the texture right away, showing a placeholder until the image is decoded in the background
+     * and uploaded by {@link #uploadTextures()}. Later calls to {@link #getTexture} return the same texture.
+     * @see Texture#whenLoaded()
+     */
+    public static Texture loadTextureAsync(String name) {
+        File file = new File(name);
+        Texture texture = AssetPool.textures.get(file.getAbsolutePath());
+        if (texture == null) {
+            texture = getTextureLoader().load(name);
             AssetPool.textures.put(file.getAbsolutePath(), texture);
-            return texture;
         }
+        return texture;
+    }
+
+    /**
+     * Uploads textures loaded with {@link #loadTextureAsync} within the loader's per-frame budget.
+     * Called once per frame by the window.
+     */
+    public static void uploadTextures() {
+        if (AssetPool.textureLoader != null) {
+            AssetPool.textureLoader.update();
+        }
+    }
+
+    public static TextureLoader getTextureLoader() {
+        if (AssetPool.textureLoader == null) {
+            AssetPool.textureLoader = new TextureLoader();
+        }
+        return AssetPool.textureLoader;
+    }
+
+    /**
+     * Returns a sprite for the image packed into the shared texture atlas, so sprites of
+     * different images can share texture slots. Images too large for an atlas page get
+     * a texture of their own.
+     */
+    public static Sprite getAtlasSprite(String name) {
+        File file = new File(name);
+        Sprite sprite = getAtlas().getSprite(file.getAbsolutePath());
+        if (sprite == null) {
+            sprite = new Sprite(getTexture(name));
+        }
+        return sprite;
+    }
+
+    public static TextureAtlas getAtlas() {
+        if (AssetPool.atlas == null) {
+            AssetPool.atlas = new TextureAtlas();
+        }
+        return AssetPool.atlas;
     }
 
     public static void addSpritesheet(String resourcePath, Spritesheet spritesheet) {
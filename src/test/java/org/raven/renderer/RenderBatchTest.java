@@ -0,0 +1,168 @@
+package org.raven.renderer;
+
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.raven.objects.GameObject;
+import org.raven.objects.components.SpriteRenderer;
+import org.raven.renderer.backend.Graphics;
+import org.raven.renderer.backend.RecordingRenderBackend;
+import org.raven.renderer.backend.RenderBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dirty range tracking and slot removal of a quad batch, against the recording backend.
+ */
+class RenderBatchTest {
+
+    private static final int MAX_SPRITES = 16;
+    // Four vertices of nine floats
+    private static final int SPRITE_BYTES = 4 * 9 * Float.BYTES;
+
+    private RenderBackend previousBackend;
+    private RecordingRenderBackend backend;
+    private RenderBatch batch;
+    private final List<SpriteRenderer> sprites = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        previousBackend = Graphics.backend();
+        backend = new RecordingRenderBackend();
+        Graphics.setBackend(backend);
+
+        batch = new QuadRenderBatch(MAX_SPRITES, 0);
+        batch.start();
+        for (int i = 0; i < MAX_SPRITES; i++) {
+            GameObject go = new GameObject("sprite" + i, new Transform(new Vector2f(i * 32, 0), new Vector2f(32, 32)), 0);
+            SpriteRenderer sprite = new SpriteRenderer(new Vector4f(1, 1, 1, 1));
+            go.addComponent(sprite);
+            sprites.add(sprite);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        batch.destroy();
+        Graphics.setBackend(previousBackend);
+    }
+
+    private void addSprites(int count) {
+        for (int i = 0; i < count; i++) {
+            batch.addSprite(sprites.get(i));
+        }
+    }
+
+    private void change(int index) {
+        sprites.get(index).markDirty();
+    }
+
+    @Test
+    void uploadsAddedSpritesAsOneRange() {
+        addSprites(10);
+        batch.render();
+
+        assertEquals(1, batch.getUploadCalls());
+        assertEquals(10 * SPRITE_BYTES, batch.getBytesUploaded());
+        assertEquals(10 * QuadIndexBuffer.INDICES_PER_QUAD, backend.getIndicesDrawn());
+    }
+
+    @Test
+    void uploadsNothingWhenNothingChanged() {
+        addSprites(10);
+        batch.render();
+        batch.render();
+
+        assertEquals(0, batch.getUploadCalls());
+        assertEquals(0, batch.getBytesUploaded());
+        assertEquals(10, batch.getSpritesDrawn());
+    }
+
+    @Test
+    void mergesRangesSeparatedBySmallGaps() {
+        addSprites(MAX_SPRITES);
+        batch.render();
+
+        // Four clean slots in between are uploaded along with the changed ones
+        change(1);
+        change(6);
+        batch.render();
+        assertEquals(1, batch.getUploadCalls());
+        assertEquals(6 * SPRITE_BYTES, batch.getBytesUploaded());
+
+        // Five are not
+        change(1);
+        change(7);
+        batch.render();
+        assertEquals(2, batch.getUploadCalls());
+        assertEquals(2 * SPRITE_BYTES, batch.getBytesUploaded());
+    }
+
+    @Test
+    void movesLastSpriteIntoRemovedSlot() {
+        addSprites(4);
+        batch.render();
+
+        assertTrue(batch.removeSprite(sprites.get(1)));
+        batch.render();
+
+        assertEquals(3, batch.getNumSprites());
+        assertTrue(batch.hasRoom());
+        // Only the slot the last sprite moved into is rewritten
+        assertEquals(1, batch.getUploadCalls());
+        assertEquals(SPRITE_BYTES, batch.getBytesUploaded());
+        assertEquals(3, batch.getSpritesDrawn());
+
+        // The moved sprite is tracked in its new slot
+        change(3);
+        batch.render();
+        assertEquals(1, batch.getUploadCalls());
+        assertEquals(SPRITE_BYTES, batch.getBytesUploaded());
+    }
+
+    @Test
+    void uploadsNothingWhenRemovingLastSprite() {
+        addSprites(4);
+        batch.render();
+
+        assertTrue(batch.removeSprite(sprites.get(3)));
+        batch.render();
+
+        assertEquals(0, batch.getUploadCalls());
+        assertEquals(3, batch.getSpritesDrawn());
+    }
+
+    @Test
+    void ignoresSpritesOfOtherBatches() {
+        addSprites(4);
+
+        assertFalse(batch.removeSprite(sprites.get(5)));
+        assertEquals(4, batch.getNumSprites());
+    }
+
+    @Test
+    void stopsListeningToRemovedSprites() {
+        addSprites(4);
+        batch.render();
+        batch.removeSprite(sprites.get(3));
+        batch.render();
+
+        change(3);
+        batch.render();
+        assertEquals(0, batch.getUploadCalls());
+    }
+
+    @Test
+    void fillsUp() {
+        addSprites(MAX_SPRITES);
+
+        assertFalse(batch.hasRoom());
+        batch.removeSprite(sprites.get(0));
+        assertTrue(batch.hasRoom());
+    }
+}
@@ -0,0 +1,103 @@
+package org.raven.renderer;
+
+import org.joml.Vector4f;
+import org.junit.jupiter.api.Test;
+import org.raven.objects.components.SpriteRenderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderQueueTest {
+
+    private final RenderQueue queue = new RenderQueue();
+
+    private static SpriteRenderer sprite() {
+        return new SpriteRenderer(new Vector4f(1, 1, 1, 1));
+    }
+
+    @Test
+    void ordersKeysByLayerThenShaderThenTextureThenDepth() {
+        long key = RenderQueue.key(0, 1, 1, 1);
+
+        assertTrue(Long.compareUnsigned(key, RenderQueue.key(1, 0, 0, 0)) < 0);
+        assertTrue(Long.compareUnsigned(key, RenderQueue.key(0, 2, 0, 0)) < 0);
+        assertTrue(Long.compareUnsigned(key, RenderQueue.key(0, 1, 2, 0)) < 0);
+        assertTrue(Long.compareUnsigned(key, RenderQueue.key(0, 1, 1, 2)) < 0);
+    }
+
+    @Test
+    void sortsNegativeLayersFirst() {
+        assertTrue(Long.compareUnsigned(RenderQueue.key(-1, 0, 0, 0), RenderQueue.key(0, 0, 0, 0)) < 0);
+        assertTrue(Long.compareUnsigned(RenderQueue.key(Short.MIN_VALUE, 0, 0, 0), RenderQueue.key(-1, 0, 0, 0)) < 0);
+        // Positive layers set the highest bit, which only sorts last as unsigned
+        assertTrue(RenderQueue.key(Short.MAX_VALUE, 0, 0, 0) < 0);
+    }
+
+    @Test
+    void clampsLayersAndTruncatesFields() {
+        assertEquals(RenderQueue.key(Short.MAX_VALUE, 0, 0, 0), RenderQueue.key(Integer.MAX_VALUE, 0, 0, 0));
+        assertEquals(RenderQueue.key(Short.MIN_VALUE, 0, 0, 0), RenderQueue.key(Integer.MIN_VALUE, 0, 0, 0));
+        assertEquals(RenderQueue.key(0, 0, 5, 0), RenderQueue.key(0, 0, 5 + (1 << RenderQueue.TEXTURE_BITS), 0));
+        assertEquals(RenderQueue.key(0, 3, 0, 0), RenderQueue.key(0, 3 + (1 << RenderQueue.SHADER_BITS), 0, 0));
+    }
+
+    @Test
+    void keepsSubmissionOrderOfEqualSprites() {
+        List<SpriteRenderer> added = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            SpriteRenderer sprite = sprite();
+            queue.add(sprite, 0, 0, 7);
+            added.add(sprite);
+        }
+        queue.sort();
+
+        for (int i = 0; i < added.size(); i++) {
+            assertSame(added.get(i), queue.get(i));
+        }
+    }
+
+    @Test
+    void sortsLikeAComparisonSort() {
+        Random random = new Random(42);
+        // More than the initial capacity, so the queue grows
+        int count = 5000;
+        SpriteRenderer[] added = new SpriteRenderer[count];
+        long[] expected = new long[count];
+        for (int i = 0; i < count; i++) {
+            int layer = random.nextInt(10) - 5;
+            int shader = random.nextInt(2);
+            int texture = random.nextInt(1 << RenderQueue.TEXTURE_BITS);
+            added[i] = sprite();
+            queue.add(added[i], layer, shader, texture);
+            expected[i] = RenderQueue.key(layer, shader, texture, i);
+        }
+        queue.sort();
+
+        Long[] sorted = Arrays.stream(expected).boxed().sorted(Long::compareUnsigned).toArray(Long[]::new);
+        assertEquals(count, queue.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(sorted[i], queue.getKey(i));
+            int depth = (int) (sorted[i] & ((1 << RenderQueue.DEPTH_BITS) - 1));
+            assertSame(added[depth], queue.get(i));
+        }
+    }
+
+    @Test
+    void startsOverAfterClear() {
+        SpriteRenderer first = sprite();
+        queue.add(first, 1, 0, 0);
+        queue.sort();
+        queue.clear();
+        assertEquals(0, queue.size());
+
+        SpriteRenderer second = sprite();
+        queue.add(second, 0, 0, 0);
+        queue.sort();
+        assertEquals(1, queue.size());
+        assertSame(second, queue.get(0));
+    }
+}
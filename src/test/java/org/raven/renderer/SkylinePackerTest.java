@@ -0,0 +1,79 @@
+package org.raven.renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkylinePackerTest {
+
+    @Test
+    void packsFromTheBottomLeft() {
+        SkylinePacker packer = new SkylinePacker(128, 128);
+
+        assertArrayEquals(new int[]{0, 0}, packer.pack(32, 64));
+        assertArrayEquals(new int[]{32, 0}, packer.pack(32, 16));
+    }
+
+    @Test
+    void placesRectanglesWhereTheyEndUpLowest() {
+        SkylinePacker packer = new SkylinePacker(128, 128);
+        packer.pack(64, 64);
+        packer.pack(32, 16);
+
+        // On the floor rather than on top of the short rectangle
+        assertArrayEquals(new int[]{96, 0}, packer.pack(32, 16));
+        // On top of the short rectangles rather than the tall one
+        assertArrayEquals(new int[]{64, 16}, packer.pack(32, 16));
+        // Spanning both short rectangles rests on the higher one
+        assertArrayEquals(new int[]{64, 32}, packer.pack(64, 8));
+    }
+
+    @Test
+    void fillsThePageExactly() {
+        SkylinePacker packer = new SkylinePacker(128, 128);
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(packer.pack(64, 64));
+        }
+
+        assertNull(packer.pack(1, 1));
+    }
+
+    @Test
+    void rejectsRectanglesLargerThanThePage() {
+        SkylinePacker packer = new SkylinePacker(128, 64);
+
+        assertNull(packer.pack(129, 1));
+        assertNull(packer.pack(1, 65));
+        assertArrayEquals(new int[]{0, 0}, packer.pack(128, 64));
+    }
+
+    @Test
+    void neverOverlapsOrLeavesThePage() {
+        int size = 256;
+        SkylinePacker packer = new SkylinePacker(size, size);
+        Random random = new Random(42);
+        List<int[]> packed = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int width = 1 + random.nextInt(40);
+            int height = 1 + random.nextInt(40);
+            int[] position = packer.pack(width, height);
+            if (position == null) {
+                continue;
+            }
+
+            int[] rect = {position[0], position[1], width, height};
+            assertTrue(rect[0] >= 0 && rect[1] >= 0 && rect[0] + width <= size && rect[1] + height <= size);
+            for (int[] other : packed) {
+                boolean overlaps = rect[0] < other[0] + other[2] && other[0] < rect[0] + rect[2]
+                        && rect[1] < other[1] + other[3] && other[1] < rect[1] + rect[3];
+                assertFalse(overlaps);
+            }
+            packed.add(rect);
+        }
+        assertFalse(packed.isEmpty());
+    }
+}
@@ -0,0 +1,72 @@
+package org.raven.renderer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.raven.renderer.backend.RenderBackend.PixelFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextureCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private static ByteBuffer pixels(int width, int height) {
+        ByteBuffer pixels = ByteBuffer.allocate(width * height * 4);
+        for (int i = 0; i < pixels.capacity(); i++) {
+            pixels.put(i, (byte) i);
+        }
+        return pixels;
+    }
+
+    @Test
+    void readsWhatWasWritten() throws IOException {
+        Path file = TextureCache.write(directory.resolve("image.rtex"), 3, 2, pixels(3, 2));
+
+        TextureCache.Image image = TextureCache.read(file);
+        assertNotNull(image);
+        assertEquals(3, image.width());
+        assertEquals(2, image.height());
+        assertEquals(PixelFormat.RGBA, image.format());
+        assertEquals(1, image.levels());
+        assertEquals(pixels(3, 2), image.pixels());
+    }
+
+    @Test
+    void leavesNoTemporaryFiles() throws IOException {
+        TextureCache.write(directory.resolve("image.rtex"), 1, 1, pixels(1, 1));
+
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void ignoresMissingTruncatedAndForeignFiles() throws IOException {
+        assertNull(TextureCache.read(directory.resolve("missing.rtex")));
+
+        Path truncated = TextureCache.write(directory.resolve("truncated.rtex"), 4, 4, pixels(4, 4));
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertNull(TextureCache.read(truncated));
+
+        Path foreign = Files.write(directory.resolve("foreign.rtex"), new byte[64]);
+        assertNull(TextureCache.read(foreign));
+    }
+
+    @Test
+    void namesFilesAfterSourceContents() throws IOException {
+        Path first = Files.write(directory.resolve("first.png"), new byte[]{1, 2, 3});
+        Path same = Files.write(directory.resolve("same.png"), new byte[]{1, 2, 3});
+        Path other = Files.write(directory.resolve("other.png"), new byte[]{1, 2, 4});
+
+        assertEquals(TextureCache.cacheFile(first), TextureCache.cacheFile(same));
+        assertNotEquals(TextureCache.cacheFile(first), TextureCache.cacheFile(other));
+    }
+}
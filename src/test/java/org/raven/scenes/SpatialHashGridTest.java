@@ -0,0 +1,137 @@
+package org.raven.scenes;
+
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+import org.raven.objects.GameObject;
+import org.raven.renderer.Transform;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialHashGridTest {
+
+    private static final float CELL_SIZE = 10.0f;
+
+    private final SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE);
+
+    private static GameObject object(float x, float y, float width, float height) {
+        return new GameObject("object", new Transform(new Vector2f(x, y), new Vector2f(width, height)), 0);
+    }
+
+    private List<GameObject> query(float minX, float minY, float maxX, float maxY) {
+        List<GameObject> result = new ArrayList<>();
+        int found = grid.query(minX, minY, maxX, maxY, result);
+        assertEquals(result.size(), found);
+        return result;
+    }
+
+    @Test
+    void findsInsertedObjectsByOverlap() {
+        GameObject a = object(0, 0, 5, 5);
+        GameObject b = object(50, 50, 5, 5);
+        grid.insert(a);
+        grid.insert(b);
+
+        assertEquals(2, grid.size());
+        assertEquals(List.of(a), query(-1, -1, 1, 1));
+        assertEquals(List.of(b), query(52, 52, 53, 53));
+        assertTrue(query(20, 20, 30, 30).isEmpty());
+        // Same cell as a, but outside its bounds
+        assertTrue(query(7, 7, 9, 9).isEmpty());
+    }
+
+    @Test
+    void reportsObjectsSpanningSeveralCellsOnce() {
+        GameObject wide = object(-15, -15, 40, 40);
+        grid.insert(wide);
+
+        assertEquals(List.of(wide), query(-20, -20, 30, 30));
+    }
+
+    @Test
+    void handlesMirroredObjects() {
+        GameObject mirrored = object(10, 10, -5, -5);
+        grid.insert(mirrored);
+
+        assertEquals(List.of(mirrored), query(6, 6, 7, 7));
+        assertTrue(query(11, 11, 12, 12).isEmpty());
+    }
+
+    @Test
+    void movesUpdatedObjects() {
+        GameObject go = object(0, 0, 5, 5);
+        grid.insert(go);
+
+        go.getTransform().setPosition(100, 100);
+        grid.update(go);
+
+        assertTrue(query(0, 0, 5, 5).isEmpty());
+        assertEquals(List.of(go), query(101, 101, 102, 102));
+
+        // Within the same cells
+        go.getTransform().setPosition(101, 101);
+        grid.update(go);
+        assertEquals(List.of(go), query(105.5f, 105.5f, 105.5f, 105.5f));
+    }
+
+    @Test
+    void removesObjectsAndReusesTheirHandles() {
+        GameObject a = object(0, 0, 5, 5);
+        GameObject b = object(0, 0, 5, 5);
+        grid.insert(a);
+        grid.remove(a);
+
+        assertEquals(0, grid.size());
+        assertTrue(query(0, 0, 5, 5).isEmpty());
+
+        grid.insert(b);
+        assertEquals(List.of(b), query(0, 0, 5, 5));
+        // Removing twice or removing unknown objects is ignored
+        grid.remove(a);
+        assertEquals(1, grid.size());
+    }
+
+    @Test
+    void keepsCellsAtTheEdgeOfTheCoordinateRangeApart() {
+        // Cell (Integer.MIN_VALUE, 0) packs into the smallest key
+        float edge = Integer.MIN_VALUE * CELL_SIZE;
+        GameObject atEdge = object(edge, 0, 1, 1);
+        GameObject atOrigin = object(0, 0, 1, 1);
+        grid.insert(atEdge);
+        grid.insert(atOrigin);
+
+        assertEquals(List.of(atEdge), query(edge, 0, edge, 0));
+        assertEquals(List.of(atOrigin), query(0, 0, 0, 0));
+    }
+
+    @Test
+    void findsOversizedAndInfiniteObjects() {
+        GameObject huge = object(-1e6f, -1e6f, 2e6f, 2e6f);
+        GameObject infinite = object(0, 0, Float.POSITIVE_INFINITY, 1);
+        GameObject small = object(3, 3, 1, 1);
+        grid.insert(huge);
+        grid.insert(infinite);
+        grid.insert(small);
+
+        assertFound(query(3, 3, 4, 4), small, huge);
+        assertEquals(List.of(huge), query(5e5f, 5e5f, 5e5f, 5e5f));
+        assertEquals(3, query(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY).size());
+
+        huge.getTransform().setScale(1, 1);
+        grid.update(huge);
+        assertTrue(query(5e5f, 5e5f, 5e5f, 5e5f).isEmpty());
+        grid.remove(infinite);
+        assertEquals(List.of(huge), query(-1e6f, -1e6f, -1e6f, -1e6f));
+    }
+
+    // Query results have no defined order
+    private static void assertFound(List<GameObject> result, GameObject... expected) {
+        assertEquals(expected.length, result.size());
+        for (GameObject go : expected) {
+            assertTrue(result.contains(go));
+        }
+    }
+}